@@ -0,0 +1,31 @@
+package com.github.gacourse.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @功能描述: 基准测试入口
+ *
+ * Runs the JMH benchmarks with the GC profiler always attached. Takes the
+ * usual JMH command line, eg. "GaBenchmark.calcClashes -p clazzes=1000".
+ *
+ * mvn -P jmh package exec:exec -Djmh.args="GaBenchmark -p populationSize=200"
+ *
+ * @author: 邪桑子
+ * @date: 2019/10/31 14:30
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
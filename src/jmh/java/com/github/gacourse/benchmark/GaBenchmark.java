@@ -0,0 +1,151 @@
+package com.github.gacourse.benchmark;
+
+import com.github.gacourse.ga.GenerationBuffer;
+import com.github.gacourse.ga.GeneticAlgorithm;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.ga.Timetable;
+import com.github.gacourse.ga.TimetableGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @功能描述: 遗传算法热点路径基准测试
+ *
+ * One benchmark per hot path of a generation, each parameterised by the
+ * number of clazzes (problem size) and the population size. Run through
+ * BenchmarkRunner, which adds the GC profiler so that allocation rate per
+ * operation is reported next to the time.
+ *
+ * @author: 邪桑子
+ * @date: 2019/10/31 14:00
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GaBenchmark {
+
+    /** 班级数，每个班级6门课；2000为真实规模 **/
+    @Param({"10", "100", "2000"})
+    public int clazzes;
+
+    @Param({"50", "200"})
+    public int populationSize;
+
+    private Timetable timetable;
+    private GeneticAlgorithm ga;
+    private GenerationBuffer generations;
+    private Population population;
+    private Individual individual;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TimetableGenerator generator = new TimetableGenerator(42L);
+        generator.setNumClazzes(this.clazzes);
+        this.timetable = generator.generate();
+        this.ga = new GeneticAlgorithm(this.populationSize, 0.01, 0.9, 2, 5);
+        this.ga.setSeed(42L);
+        this.generations = this.ga.initGenerations(this.timetable);
+        this.population = this.generations.getCurrent();
+        this.ga.evalPopulation(this.population, this.timetable);
+        this.individual = this.population.getFittest(0);
+        this.timetable.createClazzes(this.individual);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.ga.shutdown();
+    }
+
+    @Benchmark
+    public int calcClashes() {
+        return this.timetable.calcClashes();
+    }
+
+    @Benchmark
+    public Timetable createClazzes() {
+        this.timetable.createClazzes(this.individual);
+        return this.timetable;
+    }
+
+    /**
+     * evalPopulation only scores unscored individuals, so every fitness is
+     * cleared first. Clearing is one store per individual, negligible next
+     * to scoring, and avoids a per-invocation setup around a call this short.
+     */
+    @Benchmark
+    public double evalPopulation() {
+        for (Individual member : this.population.getIndividuals()) {
+            member.setFitness(-1);
+        }
+        this.ga.evalPopulation(this.population, this.timetable);
+        return this.population.getPopulationFitness();
+    }
+
+    @Benchmark
+    public Population crossoverPopulation() {
+        return this.ga.crossoverPopulation(this.population, this.generations.getNext(), this.timetable);
+    }
+
+    @Benchmark
+    public Population mutatePopulation(Mutable mutable) {
+        return this.ga.mutatePopulation(mutable.population, this.timetable);
+    }
+
+    @Benchmark
+    public Population mutatePopulationInPlace(Mutable mutable) {
+        this.ga.mutatePopulationInPlace(mutable.population, this.timetable);
+        return mutable.population;
+    }
+
+    @Benchmark
+    public Individual selectParent() {
+        return this.ga.selectParent(this.population);
+    }
+
+    @Benchmark
+    public Individual getFittest() {
+        // 使排名缓存失效，测量排序本身
+        this.population.invalidateRanking();
+        return this.population.getFittest(0);
+    }
+
+    /**
+     * A copy of the scored population for the benchmarks that mutate it, so
+     * the shared population the other benchmarks read stays as set up.
+     * Mutation drifts the copy, so it is reset to the original every
+     * iteration.
+     */
+    @State(Scope.Thread)
+    public static class Mutable {
+        private Population population;
+
+        @Setup(Level.Iteration)
+        public void reset(GaBenchmark benchmark) {
+            Population original = benchmark.population;
+            if (this.population == null) {
+                this.population = new Population(original.size(), original.getIndividual(0).getChromosomeLength());
+            }
+            for (int i = 0; i < original.size(); i++) {
+                this.population.getIndividual(i).copyFrom(original.getIndividual(i));
+            }
+            this.population.invalidateRanking();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.gacourse.controller;
+
+import com.github.gacourse.dto.JobStatus;
+import com.github.gacourse.dto.SolveRequest;
+import com.github.gacourse.service.ProgressPublisher;
+import com.github.gacourse.service.SolveJob;
+import com.github.gacourse.service.SolverService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * @功能描述: 排课求解接口
+ *
+ * POST /timetables/solve queues a problem and returns its job id at once;
+ * the GA runs on the solver executor. GET /timetables/{jobId} returns the
+ * job's state and best timetable so far, DELETE /timetables/{jobId} cancels it.
+ * GET /timetables/{jobId}/progress streams per-generation statistics as
+ * Server-Sent Events, so clients need not poll the full result.
+ *
+ * @author: 邪桑子
+ * @date: 2019/10/30 14:00
+ */
+@RestController
+@RequestMapping("/timetables")
+public class TimetableController {
+
+    private final SolverService solverService;
+    private final ProgressPublisher progressPublisher;
+
+    public TimetableController(SolverService solverService, ProgressPublisher progressPublisher) {
+        this.solverService = solverService;
+        this.progressPublisher = progressPublisher;
+    }
+
+    @PostMapping("/solve")
+    public ResponseEntity<JobStatus> solve(@RequestBody SolveRequest request) {
+        SolveJob job = this.solverService.submit(request);
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/timetables/{jobId}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(location).body(JobStatus.of(job));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<JobStatus> status(@PathVariable String jobId) {
+        SolveJob job = this.solverService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(JobStatus.of(job));
+    }
+
+    @GetMapping(path = "/{jobId}/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> progress(@PathVariable String jobId) {
+        SolveJob job = this.solverService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(this.progressPublisher.subscribe(job));
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<JobStatus> cancel(@PathVariable String jobId) {
+        SolveJob job = this.solverService.cancel(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(JobStatus.of(job));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> busy(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Collections.singletonMap("error", "Solver queue is full, try again later"));
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.gacourse.core;
 
+import com.github.gacourse.util.GaRandom;
+
 /**
  * Simple course courseName abstraction, which defines the teachers teaching the courseName.
  * 定义教师授课情况
@@ -9,6 +11,8 @@ public class Course {
     private final String courseCode;
     private final String courseName;
     private final int[] teacherIds;
+    /** 连上节次，每次课占用的连续节数 **/
+    private final int sectionLength;
     
     /**
      * Initialize new Module
@@ -19,10 +23,24 @@ public class Course {
      * @param teacherIds
      */
     public Course(int courseId, String courseCode, String courseName, int[] teacherIds){
+        this(courseId, courseCode, courseName, teacherIds, 1);
+    }
+
+    /**
+     * Initialize new Module taught in sectionLength consecutive sections
+     *
+     * @param courseId
+     * @param courseCode
+     * @param courseName
+     * @param teacherIds
+     * @param sectionLength
+     */
+    public Course(int courseId, String courseCode, String courseName, int[] teacherIds, int sectionLength){
         this.courseId = courseId;
         this.courseCode = courseCode;
         this.courseName = courseName;
         this.teacherIds = teacherIds;
+        this.sectionLength = sectionLength;
     }
     
     /**
@@ -52,13 +70,41 @@ public class Course {
         return this.courseName;
     }
     
+    /**
+     * Get teacherIds of the teachers teaching this course
+     *
+     * @return teacherIds
+     */
+    public int[] getTeacherIds(){
+        return this.teacherIds;
+    }
+
+    /**
+     * Get the number of consecutive sections every session of this course
+     * occupies
+     *
+     * @return sectionLength
+     */
+    public int getSectionLength(){
+        return this.sectionLength;
+    }
+
     /**
      * Get random teacherId Id
      * 
      * @return teacherId
      */
     public int getRandomTeacherId(){
-        int teacherId = teacherIds[(int) (teacherIds.length * Math.random())];
-        return teacherId;
+        return this.getRandomTeacherId(GaRandom.current());
+    }
+
+    /**
+     * Get random teacherId Id drawn from the given stream
+     *
+     * @param random
+     * @return teacherId
+     */
+    public int getRandomTeacherId(GaRandom random){
+        return teacherIds[random.nextInt(teacherIds.length)];
     }
 }
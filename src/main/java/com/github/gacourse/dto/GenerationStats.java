@@ -0,0 +1,57 @@
+package com.github.gacourse.dto;
+
+/**
+ * @功能描述: 单代进化统计，用于实时推送求解进度
+ * @author: 邪桑子
+ * @date: 2019/10/31 09:30
+ */
+public class GenerationStats {
+
+    private final int generation;
+    private final double bestFitness;
+    private final int clashes;
+    private final double populationFitness;
+    private final long evaluations;
+    private final double evaluationsPerSecond;
+
+    public GenerationStats(int generation, double bestFitness, double populationFitness, long evaluations,
+                           double evaluationsPerSecond) {
+        this.generation = generation;
+        this.bestFitness = bestFitness;
+        // fitness = 1 / (clashes + 1)
+        this.clashes = bestFitness > 0 ? (int) Math.round(1 / bestFitness - 1) : -1;
+        this.populationFitness = populationFitness;
+        this.evaluations = evaluations;
+        this.evaluationsPerSecond = evaluationsPerSecond;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    public int getClashes() {
+        return clashes;
+    }
+
+    public double getPopulationFitness() {
+        return populationFitness;
+    }
+
+    /**
+     * @return individuals evaluated since the job started
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return evaluation rate over the last measuring window
+     */
+    public double getEvaluationsPerSecond() {
+        return evaluationsPerSecond;
+    }
+}
@@ -0,0 +1,189 @@
+package com.github.gacourse.dto;
+
+import com.github.gacourse.core.Clazz;
+import com.github.gacourse.core.Course;
+import com.github.gacourse.core.CourseTable;
+import com.github.gacourse.core.Room;
+import com.github.gacourse.core.Teacher;
+import com.github.gacourse.core.TimesLot;
+import com.github.gacourse.ga.IncrementalEvaluator;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.Timetable;
+import com.github.gacourse.service.SolveJob;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @功能描述: 排课求解任务状态及当前最优课表
+ * @author: 邪桑子
+ * @date: 2019/10/30 11:30
+ */
+public class JobStatus {
+
+    private String jobId;
+    private String state;
+    private int generation;
+    private int maxGenerations;
+    private double bestFitness;
+    private int clashes;
+    private double populationFitness;
+    private String error;
+    private List<Assignment> schedule = new ArrayList<>();
+
+    /**
+     * Describe a job, decoding its best chromosome so far into a schedule
+     *
+     * @param job
+     * @return status
+     */
+    public static JobStatus of(SolveJob job) {
+        SolveJob.Snapshot snapshot = job.snapshot();
+        JobStatus status = new JobStatus();
+        status.jobId = job.getId();
+        status.state = snapshot.getState().name();
+        status.generation = snapshot.getGeneration();
+        status.maxGenerations = job.getMaxGenerations();
+        status.populationFitness = snapshot.getPopulationFitness();
+        status.error = snapshot.getError();
+
+        int[] chromosome = snapshot.getBestChromosome();
+        if (chromosome == null) {
+            status.bestFitness = 0;
+            status.clashes = -1;
+            return status;
+        }
+        status.bestFitness = snapshot.getBestFitness();
+
+        // 在副本上解码，任务的课表不被请求线程修改
+        Timetable timetable = new Timetable(job.getTimetable());
+        timetable.createClazzes(new Individual(chromosome.clone()));
+        status.clashes = new IncrementalEvaluator(timetable.compile()).load(chromosome);
+        for (CourseTable table : timetable.getCourseTables()) {
+            status.schedule.add(Assignment.of(timetable, table));
+        }
+        return status;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getMaxGenerations() {
+        return maxGenerations;
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * @return clashes of the best timetable, or -1 before the first generation
+     */
+    public int getClashes() {
+        return clashes;
+    }
+
+    public double getPopulationFitness() {
+        return populationFitness;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public List<Assignment> getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * 一节课的安排
+     */
+    public static class Assignment {
+        private int clazzId;
+        private String clazzName;
+        private int courseId;
+        private String courseName;
+        private int timeId;
+        private String timeName;
+        /** 连上节次，从timeId起占用的连续时段数 **/
+        private int sectionLength;
+        private int roomId;
+        private String roomNumber;
+        private int teacherId;
+        private String teacherName;
+
+        static Assignment of(Timetable timetable, CourseTable table) {
+            Assignment assignment = new Assignment();
+            Clazz clazz = timetable.getClazz(table.getClazzId());
+            Course course = timetable.getCourse(table.getCourseId());
+            TimesLot time = timetable.getTimesLot(table.getTimeId());
+            Room room = timetable.getRoom(table.getRoomId());
+            Teacher teacher = timetable.getTeacher(table.getTeacherId());
+            assignment.clazzId = table.getClazzId();
+            assignment.clazzName = clazz.getClazzName();
+            assignment.courseId = table.getCourseId();
+            assignment.courseName = course.getCourseName();
+            assignment.timeId = table.getTimeId();
+            assignment.timeName = time.getTimeName();
+            assignment.sectionLength = course.getSectionLength();
+            assignment.roomId = table.getRoomId();
+            assignment.roomNumber = room.getRoomNumber();
+            assignment.teacherId = table.getTeacherId();
+            assignment.teacherName = teacher.getTeacherName();
+            return assignment;
+        }
+
+        public int getClazzId() {
+            return clazzId;
+        }
+
+        public String getClazzName() {
+            return clazzName;
+        }
+
+        public int getCourseId() {
+            return courseId;
+        }
+
+        public String getCourseName() {
+            return courseName;
+        }
+
+        public int getTimeId() {
+            return timeId;
+        }
+
+        public String getTimeName() {
+            return timeName;
+        }
+
+        public int getSectionLength() {
+            return sectionLength;
+        }
+
+        public int getRoomId() {
+            return roomId;
+        }
+
+        public String getRoomNumber() {
+            return roomNumber;
+        }
+
+        public int getTeacherId() {
+            return teacherId;
+        }
+
+        public String getTeacherName() {
+            return teacherName;
+        }
+    }
+}
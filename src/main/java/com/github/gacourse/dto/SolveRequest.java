@@ -0,0 +1,509 @@
+package com.github.gacourse.dto;
+
+import com.github.gacourse.ga.StagnationDetector;
+import com.github.gacourse.ga.Timetable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @功能描述: 排课求解请求，包含问题定义与遗传算法参数
+ * @author: 邪桑子
+ * @date: 2019/10/30 10:20
+ */
+public class SolveRequest {
+
+    private List<RoomDef> rooms = new ArrayList<>();
+    private List<TimeDef> times = new ArrayList<>();
+    private List<TeacherDef> teachers = new ArrayList<>();
+    private List<CourseDef> courses = new ArrayList<>();
+    private List<ClazzDef> clazzes = new ArrayList<>();
+    /** 每天早上、下午、晚上的节次，按timeId顺序划分时段；全为0时每门课只占一个时段 **/
+    private int morningSections = 0;
+    private int afternoonSections = 0;
+    private int nightSections = 0;
+
+    private int populationSize = 100;
+    private double mutationRate = 0.01;
+    private double crossoverRate = 0.9;
+    private int elitismCount = 2;
+    private int tournamentSize = 5;
+    private int maxGenerations = 1000;
+    private int evaluationThreads = 1;
+    /** 为空时使用随机种子 **/
+    private Long seed;
+    /** 局部搜索的个体数，0表示不搜索 **/
+    private int localSearchTopK = 0;
+    private int localSearchMovesPerIndividual = 200;
+    private int localSearchMovesPerGeneration = 1000;
+    /** 自适应变异率、交叉率及其范围 **/
+    private boolean adaptiveRates = false;
+    private double minMutationRate = 0.001;
+    private double maxMutationRate = 0.1;
+    private double minCrossoverRate = 0.6;
+    private double maxCrossoverRate = 0.95;
+    /** 多少代没有改进视为停滞，0表示不检测 **/
+    private int stagnationPatience = 0;
+    private StagnationDetector.Action stagnationAction = StagnationDetector.Action.TERMINATE;
+    private int maxRestarts = 0;
+    /** 从该任务的检查点继续求解，问题定义与种群大小须相同；maxGenerations包含已完成的代数 **/
+    private String resumeFrom;
+    /** 以该任务的最优解热启动，仅重新安排受问题变更影响的课程 **/
+    private String warmStartFrom;
+    /** 调度权重：公平调度时为CPU份额，优先级调度时为优先级 **/
+    private int priority = 1;
+    /** CPU时间预算，0表示不限 **/
+    private long cpuBudgetSeconds = 0;
+
+    /**
+     * Build a Timetable from the problem definition
+     *
+     * @return timetable
+     */
+    public Timetable toTimetable() {
+        Timetable timetable = new Timetable();
+        for (RoomDef room : this.rooms) {
+            timetable.addRoom(room.getId(), room.getName(), room.getCapacity());
+        }
+        for (TimeDef time : this.times) {
+            timetable.addTimes(time.getId(), time.getName());
+        }
+        if (this.morningSections + this.afternoonSections + this.nightSections > 0) {
+            timetable.setSections(this.morningSections, this.afternoonSections, this.nightSections);
+        }
+        for (TeacherDef teacher : this.teachers) {
+            timetable.addTeacher(teacher.getId(), teacher.getName());
+        }
+        for (CourseDef course : this.courses) {
+            timetable.addCourse(course.getId(), course.getCode(), course.getName(), course.getTeacherIds(),
+                    course.getSectionLength());
+        }
+        for (ClazzDef clazz : this.clazzes) {
+            timetable.addClazz(clazz.getId(), clazz.getName(), clazz.getSize(), clazz.getCourseIds());
+        }
+        return timetable;
+    }
+
+    public List<RoomDef> getRooms() {
+        return rooms;
+    }
+
+    public void setRooms(List<RoomDef> rooms) {
+        this.rooms = rooms;
+    }
+
+    public List<TimeDef> getTimes() {
+        return times;
+    }
+
+    public void setTimes(List<TimeDef> times) {
+        this.times = times;
+    }
+
+    public List<TeacherDef> getTeachers() {
+        return teachers;
+    }
+
+    public void setTeachers(List<TeacherDef> teachers) {
+        this.teachers = teachers;
+    }
+
+    public List<CourseDef> getCourses() {
+        return courses;
+    }
+
+    public void setCourses(List<CourseDef> courses) {
+        this.courses = courses;
+    }
+
+    public List<ClazzDef> getClazzes() {
+        return clazzes;
+    }
+
+    public void setClazzes(List<ClazzDef> clazzes) {
+        this.clazzes = clazzes;
+    }
+
+    public int getMorningSections() {
+        return morningSections;
+    }
+
+    public void setMorningSections(int morningSections) {
+        this.morningSections = morningSections;
+    }
+
+    public int getAfternoonSections() {
+        return afternoonSections;
+    }
+
+    public void setAfternoonSections(int afternoonSections) {
+        this.afternoonSections = afternoonSections;
+    }
+
+    public int getNightSections() {
+        return nightSections;
+    }
+
+    public void setNightSections(int nightSections) {
+        this.nightSections = nightSections;
+    }
+
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    public void setPopulationSize(int populationSize) {
+        this.populationSize = populationSize;
+    }
+
+    public double getMutationRate() {
+        return mutationRate;
+    }
+
+    public void setMutationRate(double mutationRate) {
+        this.mutationRate = mutationRate;
+    }
+
+    public double getCrossoverRate() {
+        return crossoverRate;
+    }
+
+    public void setCrossoverRate(double crossoverRate) {
+        this.crossoverRate = crossoverRate;
+    }
+
+    public int getElitismCount() {
+        return elitismCount;
+    }
+
+    public void setElitismCount(int elitismCount) {
+        this.elitismCount = elitismCount;
+    }
+
+    public int getTournamentSize() {
+        return tournamentSize;
+    }
+
+    public void setTournamentSize(int tournamentSize) {
+        this.tournamentSize = tournamentSize;
+    }
+
+    public int getMaxGenerations() {
+        return maxGenerations;
+    }
+
+    public void setMaxGenerations(int maxGenerations) {
+        this.maxGenerations = maxGenerations;
+    }
+
+    public int getEvaluationThreads() {
+        return evaluationThreads;
+    }
+
+    public void setEvaluationThreads(int evaluationThreads) {
+        this.evaluationThreads = evaluationThreads;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public int getLocalSearchTopK() {
+        return localSearchTopK;
+    }
+
+    public void setLocalSearchTopK(int localSearchTopK) {
+        this.localSearchTopK = localSearchTopK;
+    }
+
+    public int getLocalSearchMovesPerIndividual() {
+        return localSearchMovesPerIndividual;
+    }
+
+    public void setLocalSearchMovesPerIndividual(int localSearchMovesPerIndividual) {
+        this.localSearchMovesPerIndividual = localSearchMovesPerIndividual;
+    }
+
+    public int getLocalSearchMovesPerGeneration() {
+        return localSearchMovesPerGeneration;
+    }
+
+    public void setLocalSearchMovesPerGeneration(int localSearchMovesPerGeneration) {
+        this.localSearchMovesPerGeneration = localSearchMovesPerGeneration;
+    }
+
+    public boolean isAdaptiveRates() {
+        return adaptiveRates;
+    }
+
+    public void setAdaptiveRates(boolean adaptiveRates) {
+        this.adaptiveRates = adaptiveRates;
+    }
+
+    public double getMinMutationRate() {
+        return minMutationRate;
+    }
+
+    public void setMinMutationRate(double minMutationRate) {
+        this.minMutationRate = minMutationRate;
+    }
+
+    public double getMaxMutationRate() {
+        return maxMutationRate;
+    }
+
+    public void setMaxMutationRate(double maxMutationRate) {
+        this.maxMutationRate = maxMutationRate;
+    }
+
+    public double getMinCrossoverRate() {
+        return minCrossoverRate;
+    }
+
+    public void setMinCrossoverRate(double minCrossoverRate) {
+        this.minCrossoverRate = minCrossoverRate;
+    }
+
+    public double getMaxCrossoverRate() {
+        return maxCrossoverRate;
+    }
+
+    public void setMaxCrossoverRate(double maxCrossoverRate) {
+        this.maxCrossoverRate = maxCrossoverRate;
+    }
+
+    public int getStagnationPatience() {
+        return stagnationPatience;
+    }
+
+    public void setStagnationPatience(int stagnationPatience) {
+        this.stagnationPatience = stagnationPatience;
+    }
+
+    public StagnationDetector.Action getStagnationAction() {
+        return stagnationAction;
+    }
+
+    public void setStagnationAction(StagnationDetector.Action stagnationAction) {
+        this.stagnationAction = stagnationAction;
+    }
+
+    public int getMaxRestarts() {
+        return maxRestarts;
+    }
+
+    public void setMaxRestarts(int maxRestarts) {
+        this.maxRestarts = maxRestarts;
+    }
+
+    public String getResumeFrom() {
+        return resumeFrom;
+    }
+
+    public void setResumeFrom(String resumeFrom) {
+        this.resumeFrom = resumeFrom;
+    }
+
+    public String getWarmStartFrom() {
+        return warmStartFrom;
+    }
+
+    public void setWarmStartFrom(String warmStartFrom) {
+        this.warmStartFrom = warmStartFrom;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public long getCpuBudgetSeconds() {
+        return cpuBudgetSeconds;
+    }
+
+    public void setCpuBudgetSeconds(long cpuBudgetSeconds) {
+        this.cpuBudgetSeconds = cpuBudgetSeconds;
+    }
+
+    /**
+     * 教室
+     */
+    public static class RoomDef {
+        private int id;
+        private String name;
+        private int capacity;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * 时段
+     */
+    public static class TimeDef {
+        private int id;
+        private String name;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * 教师
+     */
+    public static class TeacherDef {
+        private int id;
+        private String name;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * 课程及其授课教师
+     */
+    public static class CourseDef {
+        private int id;
+        private String code;
+        private String name;
+        private int[] teacherIds = new int[0];
+        /** 连上节次 **/
+        private int sectionLength = 1;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public void setCode(String code) {
+            this.code = code;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int[] getTeacherIds() {
+            return teacherIds;
+        }
+
+        public void setTeacherIds(int[] teacherIds) {
+            this.teacherIds = teacherIds;
+        }
+
+        public int getSectionLength() {
+            return sectionLength;
+        }
+
+        public void setSectionLength(int sectionLength) {
+            this.sectionLength = sectionLength;
+        }
+    }
+
+    /**
+     * 班级及其课程
+     */
+    public static class ClazzDef {
+        private int id;
+        private String name;
+        private int size;
+        private int[] courseIds = new int[0];
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int[] getCourseIds() {
+            return courseIds;
+        }
+
+        public void setCourseIds(int[] courseIds) {
+            this.courseIds = courseIds;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.gacourse.ga;
+
+/**
+ * 功能描述：自适应变异率、交叉率
+ *
+ * Adjusts a GeneticAlgorithm's mutation and crossover rates after every
+ * generation. While the best fitness improves the mutation rate shrinks by
+ * step (exploit); when it stalls, or diversity falls below targetDiversity,
+ * the rate grows by step (explore). The crossover rate follows diversity:
+ * recombining near-identical individuals only copies them, so it drops
+ * toward minCrossoverRate as the population converges.
+ *
+ * Both rates stay within the configured bounds.
+ *
+ * @author 邪桑子
+ * @date 2019/11/05 09:30
+ */
+public class AdaptiveRates {
+
+    private final double minMutationRate;
+    private final double maxMutationRate;
+    private final double minCrossoverRate;
+    private final double maxCrossoverRate;
+    private double targetDiversity = 0.1;
+    private double step = 1.2;
+
+    private double lastBestFitness = -1;
+
+    /**
+     * @param minMutationRate
+     * @param maxMutationRate
+     * @param minCrossoverRate
+     * @param maxCrossoverRate
+     */
+    public AdaptiveRates(double minMutationRate, double maxMutationRate, double minCrossoverRate, double maxCrossoverRate) {
+        if (minMutationRate < 0 || maxMutationRate > 1 || minMutationRate > maxMutationRate
+                || minCrossoverRate < 0 || maxCrossoverRate > 1 || minCrossoverRate > maxCrossoverRate) {
+            throw new IllegalArgumentException("Rate bounds must be ordered and within [0, 1]");
+        }
+        this.minMutationRate = minMutationRate;
+        this.maxMutationRate = maxMutationRate;
+        this.minCrossoverRate = minCrossoverRate;
+        this.maxCrossoverRate = maxCrossoverRate;
+    }
+
+    /**
+     * @param targetDiversity diversity (see GeneticAlgorithm.diversity) below which the population counts as converging
+     */
+    public void setTargetDiversity(double targetDiversity) {
+        if (targetDiversity <= 0 || targetDiversity > 1) {
+            throw new IllegalArgumentException("targetDiversity must be in (0, 1]");
+        }
+        this.targetDiversity = targetDiversity;
+    }
+
+    /**
+     * @param step factor by which the mutation rate grows or shrinks per generation
+     */
+    public void setStep(double step) {
+        if (step <= 1) {
+            throw new IllegalArgumentException("step must be greater than 1");
+        }
+        this.step = step;
+    }
+
+    /**
+     * Forget the fitness history, eg. before a new run
+     */
+    public void reset() {
+        this.lastBestFitness = -1;
+    }
+
+    /**
+     * Update the rates of a GA from the state of its latest generation
+     *
+     * @param ga
+     * @param bestFitness
+     * @param diversity
+     */
+    public void adapt(GeneticAlgorithm ga, double bestFitness, double diversity) {
+        boolean improved = bestFitness > this.lastBestFitness;
+        this.lastBestFitness = Math.max(this.lastBestFitness, bestFitness);
+
+        double mutationRate = ga.getMutationRate();
+        mutationRate = improved ? mutationRate / this.step : mutationRate * this.step;
+        if (diversity < this.targetDiversity) {
+            // 种群趋同，加大变异
+            mutationRate *= this.step;
+        }
+        ga.setMutationRate(clamp(mutationRate, this.minMutationRate, this.maxMutationRate));
+
+        double spread = Math.min(1, diversity / this.targetDiversity);
+        ga.setCrossoverRate(this.minCrossoverRate + (this.maxCrossoverRate - this.minCrossoverRate) * spread);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
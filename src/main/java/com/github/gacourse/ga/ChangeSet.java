@@ -0,0 +1,180 @@
+package com.github.gacourse.ga;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 功能描述：排课问题的变更集
+ *
+ * The clazzes, courses, rooms and teachers that were added, removed or
+ * edited between a solved timetable and the one to re-solve. WarmStart
+ * re-randomizes every course session that touches one of them: sessions of
+ * a changed clazz or course, and sessions the old solution placed in a
+ * changed room or gave to a changed teacher. Everything else keeps its old
+ * time, room and teacher.
+ *
+ * Build one by hand, or let diff compare two compiled timetables.
+ *
+ * @author 邪桑子
+ * @date 2019/11/07 09:20
+ */
+public class ChangeSet {
+
+    private final Set<Integer> clazzIds = new HashSet<>();
+    private final Set<Integer> courseIds = new HashSet<>();
+    private final Set<Integer> roomIds = new HashSet<>();
+    private final Set<Integer> teacherIds = new HashSet<>();
+
+    /**
+     * @param clazzId clazz added, removed or edited
+     * @return this
+     */
+    public ChangeSet changeClazz(int clazzId) {
+        this.clazzIds.add(clazzId);
+        return this;
+    }
+
+    /**
+     * @param courseId course added, removed or edited
+     * @return this
+     */
+    public ChangeSet changeCourse(int courseId) {
+        this.courseIds.add(courseId);
+        return this;
+    }
+
+    /**
+     * @param roomId room added, removed or edited
+     * @return this
+     */
+    public ChangeSet changeRoom(int roomId) {
+        this.roomIds.add(roomId);
+        return this;
+    }
+
+    /**
+     * @param teacherId teacher added, removed or made unavailable
+     * @return this
+     */
+    public ChangeSet changeTeacher(int teacherId) {
+        this.teacherIds.add(teacherId);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return this.clazzIds.isEmpty() && this.courseIds.isEmpty() && this.roomIds.isEmpty()
+                && this.teacherIds.isEmpty();
+    }
+
+    /**
+     * Check whether a course session of the old solution must be placed
+     * again
+     *
+     * @param clazzId
+     * @param courseId
+     * @param roomId room the old solution used
+     * @param teacherId teacher the old solution used
+     * @return true if the session touches a change
+     */
+    public boolean isAffected(int clazzId, int courseId, int roomId, int teacherId) {
+        return this.clazzIds.contains(clazzId) || this.courseIds.contains(courseId)
+                || this.roomIds.contains(roomId) || this.teacherIds.contains(teacherId);
+    }
+
+    /**
+     * Compare two problems: rooms and teachers that appear in only one of
+     * them or whose capacity changed, clazzes whose size or courses changed,
+     * and courses whose teachers or section length changed
+     *
+     * @param previous
+     * @param current
+     * @return changes
+     */
+    public static ChangeSet diff(CompiledTimetable previous, CompiledTimetable current) {
+        ChangeSet changes = new ChangeSet();
+
+        Map<Integer, Integer> capacity = new HashMap<>();
+        for (int i = 0; i < previous.getNumRooms(); i++) {
+            capacity.put(previous.getRoomId(i), previous.getRoomCapacity(i));
+        }
+        for (int i = 0; i < current.getNumRooms(); i++) {
+            Integer before = capacity.remove(current.getRoomId(i));
+            if (before == null || before != current.getRoomCapacity(i)) {
+                changes.changeRoom(current.getRoomId(i));
+            }
+        }
+        changes.roomIds.addAll(capacity.keySet());
+
+        Set<Integer> teachers = new HashSet<>();
+        for (int i = 0; i < previous.getNumTeachers(); i++) {
+            teachers.add(previous.getTeacherId(i));
+        }
+        for (int i = 0; i < current.getNumTeachers(); i++) {
+            if (!teachers.remove(current.getTeacherId(i))) {
+                changes.changeTeacher(current.getTeacherId(i));
+            }
+        }
+        changes.teacherIds.addAll(teachers);
+
+        Map<Integer, String> clazzes = describeClazzes(previous);
+        for (Map.Entry<Integer, String> clazz : describeClazzes(current).entrySet()) {
+            if (!clazz.getValue().equals(clazzes.remove(clazz.getKey()))) {
+                changes.changeClazz(clazz.getKey());
+            }
+        }
+        changes.clazzIds.addAll(clazzes.keySet());
+
+        Map<Integer, int[]> courses = courseTeachers(previous);
+        for (Map.Entry<Integer, int[]> course : courseTeachers(current).entrySet()) {
+            int[] before = courses.remove(course.getKey());
+            if (before == null || !Arrays.equals(before, course.getValue())) {
+                changes.changeCourse(course.getKey());
+            }
+        }
+        changes.courseIds.addAll(courses.keySet());
+        return changes;
+    }
+
+    /**
+     * Describe every clazz by its size and courses, in chromosome order
+     */
+    private static Map<Integer, String> describeClazzes(CompiledTimetable compiled) {
+        Map<Integer, StringBuilder> descriptions = new HashMap<>();
+        for (int session = 0; session < compiled.getNumSessions(); session++) {
+            StringBuilder description = descriptions.get(compiled.getSessionClazzId(session));
+            if (description == null) {
+                description = new StringBuilder().append(compiled.getSessionClazzSize(session));
+                descriptions.put(compiled.getSessionClazzId(session), description);
+            }
+            description.append(',').append(compiled.getSessionCourseId(session));
+        }
+        Map<Integer, String> clazzes = new HashMap<>();
+        for (Map.Entry<Integer, StringBuilder> description : descriptions.entrySet()) {
+            clazzes.put(description.getKey(), description.getValue().toString());
+        }
+        return clazzes;
+    }
+
+    /**
+     * Teachers and section length of every course that is taken by some clazz
+     */
+    private static Map<Integer, int[]> courseTeachers(CompiledTimetable compiled) {
+        Map<Integer, int[]> courses = new HashMap<>();
+        for (int session = 0; session < compiled.getNumSessions(); session++) {
+            int[] teacherIds = compiled.getSessionTeacherIds(session);
+            int[] description = Arrays.copyOf(teacherIds, teacherIds.length + 1);
+            description[teacherIds.length] = compiled.getSessionLength(session);
+            courses.put(compiled.getSessionCourseId(session), description);
+        }
+        return courses;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{clazzes=" + this.clazzIds + ", courses=" + this.courseIds + ", rooms=" + this.roomIds
+                + ", teachers=" + this.teacherIds + "}";
+    }
+}
@@ -0,0 +1,238 @@
+package com.github.gacourse.ga;
+
+import com.github.gacourse.util.GaRandom;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 功能描述：种群检查点
+ *
+ * A binary snapshot of a run, enough to resume it: the current population's
+ * chromosomes and fitness, the generation, the GA's random stream state and
+ * rates, and the fingerprint of the problem it was taken for. Layout, all
+ * big-endian:
+ *
+ * <pre>
+ * int    magic "GACK"
+ * int    version
+ * long   problem fingerprint (CompiledTimetable.getFingerprint)
+ * int    generation
+ * long   random seed, long random gamma
+ * double mutationRate, double crossoverRate
+ * int    populationSize, int chromosomeLength
+ * double fitness[populationSize]
+ * int    genes[populationSize x chromosomeLength]
+ * int    CRC32 of everything above
+ * </pre>
+ *
+ * Adaptive rate and stagnation detector history is not saved; they start
+ * afresh on resume.
+ *
+ * Buffer positioning calls go through java.nio.Buffer: JDK 9+ overrides
+ * them in ByteBuffer with covariant returns, and a class compiled there
+ * against those would fail with NoSuchMethodError on Java 8.
+ *
+ * @author 邪桑子
+ * @date 2019/11/06 09:30
+ */
+public final class Checkpoint {
+
+    /** "GACK" **/
+    private static final int MAGIC = 0x4741434B;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 60;
+
+    private final long fingerprint;
+    private final int generation;
+    private final long randomSeed;
+    private final long randomGamma;
+    private final double mutationRate;
+    private final double crossoverRate;
+    private final int populationSize;
+    private final int chromosomeLength;
+    private final double[] fitness;
+    private final int[] genes;
+
+    private Checkpoint(long fingerprint, int generation, long randomSeed, long randomGamma, double mutationRate,
+                       double crossoverRate, int populationSize, int chromosomeLength, double[] fitness, int[] genes) {
+        this.fingerprint = fingerprint;
+        this.generation = generation;
+        this.randomSeed = randomSeed;
+        this.randomGamma = randomGamma;
+        this.mutationRate = mutationRate;
+        this.crossoverRate = crossoverRate;
+        this.populationSize = populationSize;
+        this.chromosomeLength = chromosomeLength;
+        this.fitness = fitness;
+        this.genes = genes;
+    }
+
+    /**
+     * Get the size in bytes of a snapshot
+     *
+     * @param populationSize
+     * @param chromosomeLength
+     * @return bytes
+     */
+    public static long sizeOf(int populationSize, int chromosomeLength) {
+        return HEADER_BYTES + 8L * populationSize + 4L * populationSize * chromosomeLength + 4;
+    }
+
+    /**
+     * Encode a snapshot into a buffer, which is cleared first and flipped
+     * ready for writing afterwards
+     *
+     * @param buffer with at least sizeOf bytes remaining after clear
+     * @param compiled problem the population belongs to
+     * @param generation
+     * @param ga
+     * @param population
+     */
+    static void encode(ByteBuffer buffer, CompiledTimetable compiled, int generation, GeneticAlgorithm ga,
+                       Population population) {
+        Individual[] individuals = population.getIndividuals();
+        int chromosomeLength = compiled.getNumSessions() * 3;
+        GaRandom random = ga.getRandom();
+
+        ((Buffer) buffer).clear();
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(compiled.getFingerprint())
+                .putInt(generation)
+                .putLong(random.getSeed())
+                .putLong(random.getGamma())
+                .putDouble(ga.getMutationRate())
+                .putDouble(ga.getCrossoverRate())
+                .putInt(individuals.length)
+                .putInt(chromosomeLength);
+        for (Individual individual : individuals) {
+            buffer.putDouble(individual.getFitness());
+        }
+        for (Individual individual : individuals) {
+            if (individual.getChromosomeLength() != chromosomeLength) {
+                throw new IllegalArgumentException("Chromosome length " + individual.getChromosomeLength()
+                        + " does not match the problem");
+            }
+            // 整段复制，不逐个基因写入
+            buffer.asIntBuffer().put(individual.getGeneArray(), individual.getGeneOffset(), chromosomeLength);
+            ((Buffer) buffer).position(buffer.position() + 4 * chromosomeLength);
+        }
+
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = buffer.duplicate();
+        ((Buffer) payload).flip();
+        crc.update(payload);
+        buffer.putInt((int) crc.getValue());
+        ((Buffer) buffer).flip();
+    }
+
+    /**
+     * Read a snapshot, memory-mapping the file
+     *
+     * @param file
+     * @return checkpoint
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static Checkpoint read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 4 || size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not a checkpoint");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a checkpoint");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version);
+            }
+            long fingerprint = buffer.getLong();
+            int generation = buffer.getInt();
+            long randomSeed = buffer.getLong();
+            long randomGamma = buffer.getLong();
+            double mutationRate = buffer.getDouble();
+            double crossoverRate = buffer.getDouble();
+            int populationSize = buffer.getInt();
+            int chromosomeLength = buffer.getInt();
+            if (populationSize < 0 || chromosomeLength < 0 || sizeOf(populationSize, chromosomeLength) != size) {
+                throw new IOException(file + " is truncated or corrupt");
+            }
+
+            ByteBuffer payload = buffer.duplicate();
+            ((Buffer) payload).position(0).limit((int) size - 4);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (buffer.getInt((int) size - 4) != (int) crc.getValue()) {
+                throw new IOException(file + " failed its checksum");
+            }
+
+            double[] fitness = new double[populationSize];
+            buffer.asDoubleBuffer().get(fitness);
+            ((Buffer) buffer).position(buffer.position() + 8 * populationSize);
+            int[] genes = new int[populationSize * chromosomeLength];
+            buffer.asIntBuffer().get(genes);
+            return new Checkpoint(fingerprint, generation, randomSeed, randomGamma, mutationRate, crossoverRate,
+                    populationSize, chromosomeLength, fitness, genes);
+        }
+    }
+
+    /**
+     * Resume a run: load the saved population as the current generation of
+     * a new GenerationBuffer, and restore the GA's random stream and rates.
+     * The population is summed by evalPopulation; saved fitness values are
+     * kept, not recomputed.
+     *
+     * @param ga
+     * @param timetable must be the problem the checkpoint was taken for
+     * @return generations, ready for nextGeneration
+     * @throws IllegalArgumentException if the problem or population size differ
+     */
+    public GenerationBuffer restore(GeneticAlgorithm ga, Timetable timetable) {
+        CompiledTimetable compiled = timetable.compile();
+        if (compiled.getFingerprint() != this.fingerprint) {
+            throw new IllegalArgumentException("Checkpoint was taken for a different problem");
+        }
+        if (ga.getPopulationSize() != this.populationSize) {
+            throw new IllegalArgumentException("Checkpoint population size " + this.populationSize
+                    + " != " + ga.getPopulationSize());
+        }
+
+        GenerationBuffer generations = new GenerationBuffer(this.populationSize, this.chromosomeLength);
+        Individual[] individuals = generations.getCurrent().getIndividuals();
+        for (int i = 0; i < individuals.length; i++) {
+            Individual individual = individuals[i];
+            System.arraycopy(this.genes, i * this.chromosomeLength, individual.getGeneArray(),
+                    individual.getGeneOffset(), this.chromosomeLength);
+            individual.setFitness(this.fitness[i]);
+        }
+        ga.setRandom(GaRandom.restore(this.randomSeed, this.randomGamma));
+        ga.setMutationRate(this.mutationRate);
+        ga.setCrossoverRate(this.crossoverRate);
+        ga.evalPopulation(generations.getCurrent(), timetable);
+        return generations;
+    }
+
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    public int getGeneration() {
+        return this.generation;
+    }
+
+    public int getPopulationSize() {
+        return this.populationSize;
+    }
+
+    public int getChromosomeLength() {
+        return this.chromosomeLength;
+    }
+}
@@ -0,0 +1,183 @@
+package com.github.gacourse.ga;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 功能描述：异步写入检查点
+ *
+ * Writes Checkpoint snapshots of a run to one file, at most once per
+ * interval. The GA loop only pays for copying the population into a reused
+ * direct buffer; a background thread writes it to a temporary file, forces
+ * it to disk and atomically renames it over the previous snapshot, so the
+ * file always holds a complete checkpoint. If the previous snapshot is still
+ * being written when the next one is due, the new one is skipped rather
+ * than blocking the loop.
+ *
+ * write and maybeWrite must be called from the thread running the GA.
+ *
+ * @author 邪桑子
+ * @date 2019/11/06 10:40
+ */
+public class CheckpointWriter implements Closeable {
+
+    private final Path file;
+    private final Path tempFile;
+    private final long intervalNanos;
+    private final ExecutorService executor;
+    /** 后台线程写文件期间为true，此时缓冲区不能复用 **/
+    private final AtomicBoolean writing = new AtomicBoolean();
+
+    private ByteBuffer buffer;
+    private long lastWrite = System.nanoTime();
+    private volatile IOException failure;
+
+    /**
+     * @param file snapshot file, replaced on every write
+     * @param intervalMillis minimum time between snapshots taken by maybeWrite
+     */
+    public CheckpointWriter(Path file, long intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("intervalMillis must not be negative");
+        }
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ga-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    /**
+     * Get the error of the latest write, if it failed. Failures do not stop
+     * later writes.
+     *
+     * @return error or null
+     */
+    public IOException getFailure() {
+        return this.failure;
+    }
+
+    /**
+     * Snapshot the population if the interval has passed since the last one
+     *
+     * @param generation
+     * @param population current, evaluated population
+     * @param ga
+     * @param timetable
+     * @return true if a snapshot was taken
+     */
+    public boolean maybeWrite(int generation, Population population, GeneticAlgorithm ga, Timetable timetable) {
+        if (System.nanoTime() - this.lastWrite < this.intervalNanos) {
+            return false;
+        }
+        return this.write(generation, population, ga, timetable);
+    }
+
+    /**
+     * Snapshot the population now, unless the previous snapshot is still
+     * being written
+     *
+     * @param generation
+     * @param population current, evaluated population
+     * @param ga
+     * @param timetable
+     * @return true if a snapshot was taken
+     */
+    public boolean write(int generation, Population population, GeneticAlgorithm ga, Timetable timetable) {
+        if (!this.writing.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            CompiledTimetable compiled = timetable.compile();
+            long size = Checkpoint.sizeOf(population.size(), compiled.getNumSessions() * 3);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Population too large to checkpoint: " + size + " bytes");
+            }
+            if (this.buffer == null || this.buffer.capacity() < size) {
+                this.buffer = ByteBuffer.allocateDirect((int) size);
+            }
+            Checkpoint.encode(this.buffer, compiled, generation, ga, population);
+            this.executor.execute(this::flush);
+        } catch (RuntimeException e) {
+            this.writing.set(false);
+            throw e;
+        }
+        this.lastWrite = System.nanoTime();
+        return true;
+    }
+
+    private void flush() {
+        try (FileChannel channel = FileChannel.open(this.tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = this.buffer.duplicate();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            this.failure = e;
+            this.writing.set(false);
+            return;
+        }
+        try {
+            try {
+                Files.move(this.tempFile, this.file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(this.tempFile, this.file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            this.failure = null;
+        } catch (IOException e) {
+            this.failure = e;
+        } finally {
+            this.writing.set(false);
+        }
+    }
+
+    /**
+     * Wait for the snapshot being written, if any
+     */
+    public void awaitWrite() {
+        try {
+            // 单线程执行器按顺序执行，空任务完成时之前的写入已结束
+            this.executor.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Wait for the snapshot being written, if any, and stop the background
+     * thread
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package com.github.gacourse.ga;
+
+
+import com.github.gacourse.core.Clazz;
+import com.github.gacourse.core.Course;
+import com.github.gacourse.core.Room;
+import com.github.gacourse.core.Teacher;
+import com.github.gacourse.core.TimesLot;
+import com.github.gacourse.util.GaRandom;
+import com.github.gacourse.util.SectionCode;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * 功能描述：编译后的排课问题
+ *
+ * An immutable snapshot of the fixed information in a Timetable. Sparse room,
+ * timeslot and teacher IDs are remapped to dense indexes (ordered by ID), and
+ * everything the GA touches on its hot path is held in primitive arrays:
+ * room capacities, clazz sizes, the teachers of every course, and the gene
+ * layout that tells which clazz and course each course session belongs to.
+ *
+ * Chromosomes still carry the original IDs; roomIndex, timeIndex and
+ * teacherIndex turn them into dense indexes by plain array indexing.
+ *
+ * Rooms are also kept sorted by capacity. The rooms large enough for a clazz
+ * are then a suffix of that order, so every course session's feasible room
+ * domain is just a start index into it, found once per clazz by binary
+ * search. Random room genes are drawn from that domain only.
+ *
+ * A course taught in n consecutive sections occupies n timeslots from its
+ * time gene on. With a section layout (Timetable.setSections) its time
+ * domain is the first timeslot of every n-section block of SectionCode, in
+ * every day; without one every course occupies a single timeslot and may
+ * start on any of them. Sessions of the same length share one domain array.
+ *
+ * Arrays returned by getters are shared with the snapshot and must not be
+ * modified.
+ *
+ * @author 邪桑子
+ * @date 2019/10/21 09:30
+ */
+public final class CompiledTimetable {
+
+    private final Room[] rooms;
+    private final int[] roomIds;
+    private final int[] roomCapacity;
+    private final int[] roomIndexById;
+    /** 按容量升序排列的教室 **/
+    private final int[] roomIdsByCapacity;
+    private final int[] sortedCapacity;
+    /** 每个教室在容量顺序中的位置 **/
+    private final int[] roomCapacityRank;
+
+    private final TimesLot[] times;
+    private final int[] timeIds;
+    private final int[] timeIndexById;
+
+    private final Teacher[] teachers;
+    private final int[] teacherIds;
+    private final int[] teacherIndexById;
+
+    /** 基因布局：第i节课所属的班级、课程、班级人数、可选教师 **/
+    private final int[] sessionClazzId;
+    private final int[] sessionCourseId;
+    private final int[] sessionClazzSize;
+    private final int[][] sessionTeacherIds;
+    /** 第i节课可用教室在roomIdsByCapacity中的起始位置 **/
+    private final int[] sessionRoomFrom;
+    /** 第i节课的连上节次及可选的开始时段下标 **/
+    private final int[] sessionLength;
+    private final int[][] sessionStarts;
+    /** 可选开始时段的位图，用于校验时段基因 **/
+    private final long[][] sessionStartSet;
+    private final SectionCode sections;
+    /** 问题指纹，用于校验检查点 **/
+    private final long fingerprint;
+
+    /**
+     * Compile the fixed information of a timetable
+     *
+     * @param rooms
+     * @param times
+     * @param teachers
+     * @param courses
+     * @param clazzes clazzes in chromosome order
+     * @param sections section layout of a day, or null
+     */
+    CompiledTimetable(Map<Integer, Room> rooms, Map<Integer, TimesLot> times, Map<Integer, Teacher> teachers,
+                      Map<Integer, Course> courses, Clazz[] clazzes, SectionCode sections) {
+        this.rooms = rooms.values().toArray(new Room[0]);
+        Arrays.sort(this.rooms, Comparator.comparingInt(Room::getRoomId));
+        this.roomIds = new int[this.rooms.length];
+        this.roomCapacity = new int[this.rooms.length];
+        for (int i = 0; i < this.rooms.length; i++) {
+            this.roomIds[i] = this.rooms[i].getRoomId();
+            this.roomCapacity[i] = this.rooms[i].getRoomCapacity();
+        }
+        this.roomIndexById = indexById(this.roomIds);
+
+        Room[] byCapacity = this.rooms.clone();
+        // 稳定排序，容量相同时按ID
+        Arrays.sort(byCapacity, Comparator.comparingInt(Room::getRoomCapacity));
+        this.roomIdsByCapacity = new int[byCapacity.length];
+        this.sortedCapacity = new int[byCapacity.length];
+        for (int i = 0; i < byCapacity.length; i++) {
+            this.roomIdsByCapacity[i] = byCapacity[i].getRoomId();
+            this.sortedCapacity[i] = byCapacity[i].getRoomCapacity();
+        }
+        this.roomCapacityRank = new int[this.rooms.length];
+        for (int i = 0; i < byCapacity.length; i++) {
+            this.roomCapacityRank[this.roomIndexById[byCapacity[i].getRoomId()]] = i;
+        }
+
+        this.times = times.values().toArray(new TimesLot[0]);
+        Arrays.sort(this.times, Comparator.comparingInt(TimesLot::getTimeId));
+        this.timeIds = new int[this.times.length];
+        for (int i = 0; i < this.times.length; i++) {
+            this.timeIds[i] = this.times[i].getTimeId();
+        }
+        this.timeIndexById = indexById(this.timeIds);
+
+        this.teachers = teachers.values().toArray(new Teacher[0]);
+        Arrays.sort(this.teachers, Comparator.comparingInt(Teacher::getTeacherId));
+        this.teacherIds = new int[this.teachers.length];
+        for (int i = 0; i < this.teachers.length; i++) {
+            this.teacherIds[i] = this.teachers[i].getTeacherId();
+        }
+        this.teacherIndexById = indexById(this.teacherIds);
+
+        int numSessions = 0;
+        for (Clazz clazz : clazzes) {
+            numSessions += clazz.getCourseIds().length;
+        }
+        this.sessionClazzId = new int[numSessions];
+        this.sessionCourseId = new int[numSessions];
+        this.sessionClazzSize = new int[numSessions];
+        this.sessionTeacherIds = new int[numSessions][];
+        this.sessionRoomFrom = new int[numSessions];
+        this.sessionLength = new int[numSessions];
+        this.sessionStarts = new int[numSessions][];
+        this.sessionStartSet = new long[numSessions][];
+        this.sections = sections;
+        if (sections != null && (sections.getTotal() == 0 || this.times.length % sections.getTotal() != 0)) {
+            throw new IllegalStateException(this.times.length + " timeslots are not whole days of "
+                    + sections.getTotal() + " sections");
+        }
+        // 相同节次的课程共用开始时段数组
+        int[][] startsByLength = new int[sections == null ? 2 : sections.getMaxLength() + 1][];
+        long[][] startSetByLength = new long[startsByLength.length][];
+
+        int session = 0;
+        for (Clazz clazz : clazzes) {
+            int roomFrom = this.firstRoomWithCapacity(clazz.getNumSize());
+            if (roomFrom == this.sortedCapacity.length) {
+                // 没有足够大的教室时退回到全部教室
+                roomFrom = 0;
+            }
+            for (int courseId : clazz.getCourseIds()) {
+                Course course = courses.get(courseId);
+                if (course == null) {
+                    throw new IllegalStateException("Clazz " + clazz.getClazzId() + " references unknown course " + courseId);
+                }
+                int[] courseTeachers = course.getTeacherIds();
+                if (courseTeachers.length == 0) {
+                    throw new IllegalStateException("Course " + courseId + " has no teachers");
+                }
+                for (int teacherId : courseTeachers) {
+                    if (indexOf(this.teacherIndexById, teacherId) < 0) {
+                        throw new IllegalStateException("Course " + courseId + " references unknown teacher " + teacherId);
+                    }
+                }
+                this.sessionClazzId[session] = clazz.getClazzId();
+                this.sessionCourseId[session] = courseId;
+                this.sessionClazzSize[session] = clazz.getNumSize();
+                this.sessionTeacherIds[session] = courseTeachers.clone();
+                this.sessionRoomFrom[session] = roomFrom;
+                int length = course.getSectionLength();
+                if (length < 1 || length >= startsByLength.length) {
+                    throw new IllegalStateException("Course " + courseId + " cannot be taught in " + length
+                            + " consecutive sections" + (sections == null ? " without a section layout" : ""));
+                }
+                if (startsByLength[length] == null) {
+                    startsByLength[length] = this.startTimes(length);
+                    startSetByLength[length] = new long[(this.times.length + 63) >>> 6];
+                    for (int time : startsByLength[length]) {
+                        startSetByLength[length][time >>> 6] |= 1L << time;
+                    }
+                }
+                this.sessionLength[session] = length;
+                this.sessionStarts[session] = startsByLength[length];
+                this.sessionStartSet[session] = startSetByLength[length];
+                session++;
+            }
+        }
+        this.fingerprint = this.computeFingerprint();
+    }
+
+    /**
+     * Timeslot indexes on which a block of length sections may start, in
+     * ascending order
+     */
+    private int[] startTimes(int length) {
+        if (this.sections == null) {
+            int[] starts = new int[this.times.length];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = i;
+            }
+            return starts;
+        }
+        int total = this.sections.getTotal();
+        int[] offsets = new int[this.sections.count(length)];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = SectionCode.firstSection(this.sections.getMask(length, i)) - 1;
+        }
+        Arrays.sort(offsets);
+        int days = this.times.length / total;
+        int[] starts = new int[days * offsets.length];
+        for (int day = 0, i = 0; day < days; day++) {
+            for (int offset : offsets) {
+                starts[i++] = day * total + offset;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Hash everything a chromosome's meaning depends on: the gene layout,
+     * every gene's domain and the room capacities
+     */
+    private long computeFingerprint() {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, this.roomIds.length);
+        for (int i = 0; i < this.roomIds.length; i++) {
+            hash = mix(mix(hash, this.roomIds[i]), this.roomCapacity[i]);
+        }
+        hash = mix(hash, this.timeIds.length);
+        for (int timeId : this.timeIds) {
+            hash = mix(hash, timeId);
+        }
+        hash = mix(hash, this.teacherIds.length);
+        for (int teacherId : this.teacherIds) {
+            hash = mix(hash, teacherId);
+        }
+        hash = mix(hash, this.sessionClazzId.length);
+        for (int session = 0; session < this.sessionClazzId.length; session++) {
+            hash = mix(mix(mix(hash, this.sessionClazzId[session]), this.sessionCourseId[session]),
+                    this.sessionClazzSize[session]);
+            for (int teacherId : this.sessionTeacherIds[session]) {
+                hash = mix(hash, teacherId);
+            }
+        }
+        if (this.sections != null) {
+            // 无节次划分时指纹与旧版本一致
+            hash = mix(mix(mix(hash, this.sections.getMorning()), this.sections.getAfternoon()),
+                    this.sections.getNight());
+            for (int length : this.sessionLength) {
+                hash = mix(hash, length);
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        // FNV-1a，逐个int混合
+        return (hash ^ value) * 0x100000001b3L;
+    }
+
+    /**
+     * Position of the first room in capacity order that holds at least
+     * numSize students
+     *
+     * @param numSize
+     * @return position, or the number of rooms if no room is large enough
+     */
+    public int firstRoomWithCapacity(int numSize) {
+        int low = 0;
+        int high = this.sortedCapacity.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.sortedCapacity[mid] < numSize) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] indexById(int[] ids) {
+        int maxId = -1;
+        for (int id : ids) {
+            if (id < 0) {
+                throw new IllegalStateException("Negative id " + id);
+            }
+            maxId = Math.max(maxId, id);
+        }
+        int[] index = new int[maxId + 1];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < ids.length; i++) {
+            index[ids[i]] = i;
+        }
+        return index;
+    }
+
+    private static int indexOf(int[] indexById, int id) {
+        return id < 0 || id >= indexById.length ? -1 : indexById[id];
+    }
+
+    private static int require(int[] indexById, int id, String kind) {
+        int index = indexOf(indexById, id);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown " + kind + " id " + id);
+        }
+        return index;
+    }
+
+    /**
+     * Get a 64-bit fingerprint of the problem. Two compiled timetables with
+     * the same fingerprint give every chromosome the same meaning, so a
+     * population saved for one can be resumed on the other.
+     *
+     * @return fingerprint
+     */
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    /**
+     * Get number of course sessions, ie. chromosome length / 3
+     *
+     * @return numSessions
+     */
+    public int getNumSessions() {
+        return this.sessionClazzId.length;
+    }
+
+    public int getNumRooms() {
+        return this.rooms.length;
+    }
+
+    public int getNumTimes() {
+        return this.times.length;
+    }
+
+    public int getNumTeachers() {
+        return this.teachers.length;
+    }
+
+    /**
+     * Dense room index of a roomId
+     *
+     * @param roomId
+     * @return room index
+     * @throws IllegalArgumentException if the room does not exist
+     */
+    public int roomIndex(int roomId) {
+        return require(this.roomIndexById, roomId, "room");
+    }
+
+    /**
+     * Dense timeslot index of a timeId
+     *
+     * @param timeId
+     * @return timeslot index
+     * @throws IllegalArgumentException if the timeslot does not exist
+     */
+    public int timeIndex(int timeId) {
+        return require(this.timeIndexById, timeId, "timeslot");
+    }
+
+    /**
+     * Dense teacher index of a teacherId
+     *
+     * @param teacherId
+     * @return teacher index
+     * @throws IllegalArgumentException if the teacher does not exist
+     */
+    public int teacherIndex(int teacherId) {
+        return require(this.teacherIndexById, teacherId, "teacher");
+    }
+
+    public Room getRoom(int index) {
+        return this.rooms[index];
+    }
+
+    public int getRoomId(int index) {
+        return this.roomIds[index];
+    }
+
+    public int getRoomCapacity(int index) {
+        return this.roomCapacity[index];
+    }
+
+    /**
+     * Get a room's position in ascending order of capacity
+     *
+     * @param index room index
+     * @return rank
+     */
+    public int getRoomCapacityRank(int index) {
+        return this.roomCapacityRank[index];
+    }
+
+    /**
+     * Get the room at a position in ascending order of capacity
+     *
+     * @param rank
+     * @return roomId
+     */
+    public int getRoomIdByCapacity(int rank) {
+        return this.roomIdsByCapacity[rank];
+    }
+
+    public TimesLot getTimesLot(int index) {
+        return this.times[index];
+    }
+
+    public int getTimeId(int index) {
+        return this.timeIds[index];
+    }
+
+    public int getTeacherId(int index) {
+        return this.teacherIds[index];
+    }
+
+    public int getSessionClazzId(int session) {
+        return this.sessionClazzId[session];
+    }
+
+    public int getSessionCourseId(int session) {
+        return this.sessionCourseId[session];
+    }
+
+    public int getSessionClazzSize(int session) {
+        return this.sessionClazzSize[session];
+    }
+
+    /**
+     * Get the section layout of a day
+     *
+     * @return sections, or null if every session occupies a single timeslot
+     */
+    public SectionCode getSections() {
+        return this.sections;
+    }
+
+    /**
+     * Get the number of consecutive timeslots a course session occupies
+     *
+     * @param session
+     * @return sectionLength
+     */
+    public int getSessionLength(int session) {
+        return this.sessionLength[session];
+    }
+
+    /**
+     * Get the number of timeslots a course session may start on
+     *
+     * @param session
+     * @return size of the session's time domain
+     */
+    public int getStartCount(int session) {
+        return this.sessionStarts[session].length;
+    }
+
+    /**
+     * Get a timeslot of a course session's time domain, in ascending order
+     *
+     * @param session
+     * @param index index in [0, getStartCount(session))
+     * @return timeslot index
+     */
+    public int getStartTime(int session, int index) {
+        return this.sessionStarts[session][index];
+    }
+
+    /**
+     * Check whether a course session may start on a timeslot
+     *
+     * @param session
+     * @param time timeslot index
+     * @return true if the timeslot is in the session's time domain
+     */
+    public boolean isValidStart(int session, int time) {
+        return (this.sessionStartSet[session][time >>> 6] & (1L << time)) != 0;
+    }
+
+    /**
+     * Check that a course session may start on a timeslot
+     *
+     * @param session
+     * @param time timeslot index
+     * @throws IllegalArgumentException if the timeslot is not in the session's time domain
+     */
+    public void checkStart(int session, int time) {
+        if (!this.isValidStart(session, time)) {
+            throw new IllegalArgumentException("Course session " + session + " cannot start on timeslot id "
+                    + this.times[time].getTimeId());
+        }
+    }
+
+    /**
+     * Get the number of rooms in a course session's feasible room domain
+     *
+     * @param session
+     * @return number of rooms large enough for the clazz, or all rooms if none is
+     */
+    public int getFeasibleRoomCount(int session) {
+        return this.roomIdsByCapacity.length - this.sessionRoomFrom[session];
+    }
+
+    /**
+     * Get a room of a course session's feasible room domain, in ascending
+     * order of capacity
+     *
+     * @param session
+     * @param index index in [0, getFeasibleRoomCount(session))
+     * @return roomId
+     */
+    public int getFeasibleRoomId(int session, int index) {
+        return this.roomIdsByCapacity[this.sessionRoomFrom[session] + index];
+    }
+
+    /**
+     * Draw a random value for a gene from that gene's own domain: a valid
+     * start timeslot for a time gene, a room large enough for the clazz for a room
+     * gene, and one of the course's teachers for a teacher gene.
+     *
+     * @param offset gene offset in the chromosome
+     * @param random
+     * @return timeId, roomId or teacherId
+     */
+    public int randomGene(int offset, GaRandom random) {
+        switch (offset % 3) {
+            case 0:
+                int[] starts = this.sessionStarts[offset / 3];
+                return this.timeIds[starts[random.nextInt(starts.length)]];
+            case 1:
+                int from = this.sessionRoomFrom[offset / 3];
+                return this.roomIdsByCapacity[from + random.nextInt(this.roomIdsByCapacity.length - from)];
+            default:
+                int[] teacherIds = this.sessionTeacherIds[offset / 3];
+                return teacherIds[random.nextInt(teacherIds.length)];
+        }
+    }
+
+    /**
+     * Check whether a value lies in a gene's domain, ie. could have been
+     * drawn by randomGene
+     *
+     * @param offset gene offset in the chromosome
+     * @param gene timeId, roomId or teacherId
+     * @return true if the value is valid for the gene
+     */
+    public boolean isInDomain(int offset, int gene) {
+        switch (offset % 3) {
+            case 0:
+                int time = indexOf(this.timeIndexById, gene);
+                return time >= 0 && this.isValidStart(offset / 3, time);
+            case 1:
+                int index = indexOf(this.roomIndexById, gene);
+                int from = this.sessionRoomFrom[offset / 3];
+                return index >= 0 && (from == 0 || this.roomCapacity[index] >= this.sortedCapacity[from]);
+            default:
+                for (int teacherId : this.sessionTeacherIds[offset / 3]) {
+                    if (teacherId == gene) {
+                        return true;
+                    }
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Get the teacherIds that may teach a course session
+     *
+     * @param session
+     * @return teacherIds, shared with the snapshot
+     */
+    public int[] getSessionTeacherIds(int session) {
+        return this.sessionTeacherIds[session];
+    }
+}
@@ -0,0 +1,211 @@
+package com.github.gacourse.ga;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 功能描述：适应度缓存
+ *
+ * A bounded cache of fitness values keyed by chromosome. Late in a run the
+ * population collapses onto a few chromosomes, so most individuals that
+ * need scoring are duplicates of something already scored.
+ *
+ * Entries are found by a hash of the genes and confirmed by comparing every
+ * gene, so a hash collision never returns a wrong fitness. The cache is split
+ * into independently locked segments, each evicting its least recently used
+ * entry when full, so parallel evaluation threads rarely contend.
+ *
+ * A cache is only valid for one problem: bind clears it when the compiled
+ * timetable changes.
+ *
+ * @author 邪桑子
+ * @date 2019/10/25 11:00
+ */
+public class FitnessCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int maxEntries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile CompiledTimetable owner;
+
+    /**
+     * @param maxEntries maximum number of chromosomes kept
+     */
+    public FitnessCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        int numSegments = Math.min(MAX_SEGMENTS, maxEntries);
+        this.segments = new Segment[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            // 余数分给前几个分段
+            int capacity = maxEntries / numSegments + (i < maxEntries % numSegments ? 1 : 0);
+            this.segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Bind the cache to a problem, clearing it if it was filled for another one
+     *
+     * @param compiled
+     */
+    public void bind(CompiledTimetable compiled) {
+        if (this.owner != compiled) {
+            synchronized (this) {
+                if (this.owner != compiled) {
+                    this.clear();
+                    this.owner = compiled;
+                }
+            }
+        }
+    }
+
+    /**
+     * Look up the fitness of an individual's chromosome
+     *
+     * @param individual
+     * @return fitness, or -1 if the chromosome is not cached
+     */
+    public double get(Individual individual) {
+        Key probe = new Key(individual.getGeneArray(), individual.getGeneOffset(), individual.getChromosomeLength());
+        Double fitness = this.segmentFor(probe.hash).get(probe);
+        if (fitness == null) {
+            this.misses.incrementAndGet();
+            return -1;
+        }
+        this.hits.incrementAndGet();
+        return fitness;
+    }
+
+    /**
+     * Cache the fitness of an individual's chromosome. The genes are copied.
+     *
+     * @param individual
+     * @param fitness
+     */
+    public void put(Individual individual, double fitness) {
+        int offset = individual.getGeneOffset();
+        int[] genes = Arrays.copyOfRange(individual.getGeneArray(), offset, offset + individual.getChromosomeLength());
+        Key key = new Key(genes, 0, genes.length);
+        this.segmentFor(key.hash).put(key, fitness);
+    }
+
+    public void clear() {
+        for (Segment segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public int getMaxEntries() {
+        return this.maxEntries;
+    }
+
+    /**
+     * Get the number of cached chromosomes
+     *
+     * @return size
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : this.segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segmentFor(int hash) {
+        return this.segments[(hash & Integer.MAX_VALUE) % this.segments.length];
+    }
+
+    /**
+     * A locked LRU map
+     */
+    private static final class Segment {
+        private final LinkedHashMap<Key, Double> map;
+
+        Segment(final int capacity) {
+            this.map = new LinkedHashMap<Key, Double>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Double> eldest) {
+                    return this.size() > capacity;
+                }
+            };
+        }
+
+        synchronized Double get(Key key) {
+            return this.map.get(key);
+        }
+
+        synchronized void put(Key key, Double fitness) {
+            this.map.put(key, fitness);
+        }
+
+        synchronized void clear() {
+            this.map.clear();
+        }
+
+        synchronized int size() {
+            return this.map.size();
+        }
+    }
+
+    /**
+     * A chromosome stored at an offset of a gene array
+     */
+    private static final class Key {
+        private final int[] genes;
+        private final int offset;
+        private final int length;
+        private final int hash;
+
+        Key(int[] genes, int offset, int length) {
+            this.genes = genes;
+            this.offset = offset;
+            this.length = length;
+            int h = 1;
+            for (int i = offset; i < offset + length; i++) {
+                h = 31 * h + genes[i];
+            }
+            this.hash = h ^ (h >>> 16);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            if (other.hash != this.hash || other.length != this.length) {
+                return false;
+            }
+            for (int i = 0; i < this.length; i++) {
+                if (this.genes[this.offset + i] != other.genes[other.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.github.gacourse.ga;
+
+import com.github.gacourse.util.GaRandom;
+
+/**
+ * 功能描述：紧凑基因编码
+ *
+ * Packs the (time, room, teacher) triple of one course session into a
+ * single int, as dense indexes of a CompiledTimetable in bit fields just
+ * wide enough for each domain:
+ *
+ * <pre>
+ * | time | room | teacher |   (high to low bits)
+ * </pre>
+ *
+ * 60 timeslots, 800 rooms and 2,000 teachers take 6 + 10 + 11 = 27 bits, so
+ * a packed chromosome is a third of the size of the three-int layout of
+ * Individual. Problems whose fields need more than 32 bits together cannot
+ * be packed.
+ *
+ * Fields are numbered like the genes of a session: 0 time, 1 room, 2 teacher.
+ *
+ * @author 邪桑子
+ * @date 2019/11/08 09:30
+ */
+public final class GeneCodec {
+
+    private final CompiledTimetable compiled;
+    private final int[] shift = new int[3];
+    private final int[] mask = new int[3];
+
+    /**
+     * @param compiled
+     * @throws IllegalStateException if the three fields do not fit in 32 bits
+     */
+    public GeneCodec(CompiledTimetable compiled) {
+        this.compiled = compiled;
+        int teacherBits = bitsFor(compiled.getNumTeachers());
+        int roomBits = bitsFor(compiled.getNumRooms());
+        int timeBits = bitsFor(compiled.getNumTimes());
+        if (timeBits + roomBits + teacherBits > 32) {
+            throw new IllegalStateException("Cannot pack " + compiled.getNumTimes() + " timeslots, "
+                    + compiled.getNumRooms() + " rooms and " + compiled.getNumTeachers() + " teachers into 32 bits");
+        }
+        this.shift[2] = 0;
+        this.shift[1] = teacherBits;
+        this.shift[0] = teacherBits + roomBits;
+        this.mask[2] = fieldMask(teacherBits);
+        this.mask[1] = fieldMask(roomBits) << this.shift[1];
+        this.mask[0] = fieldMask(timeBits) << this.shift[0];
+    }
+
+    /**
+     * Number of bits holding the indexes [0, size)
+     */
+    private static int bitsFor(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    private static int fieldMask(int bits) {
+        return (1 << bits) - 1;
+    }
+
+    public CompiledTimetable getCompiled() {
+        return this.compiled;
+    }
+
+    /**
+     * @param time timeslot index
+     * @param room room index
+     * @param teacher teacher index
+     * @return packed session
+     */
+    public int pack(int time, int room, int teacher) {
+        return (time << this.shift[0]) | (room << this.shift[1]) | teacher;
+    }
+
+    public int time(int packed) {
+        return (packed & this.mask[0]) >>> this.shift[0];
+    }
+
+    public int room(int packed) {
+        return (packed & this.mask[1]) >>> this.shift[1];
+    }
+
+    public int teacher(int packed) {
+        return packed & this.mask[2];
+    }
+
+    /**
+     * @param packed
+     * @param field 0 time, 1 room, 2 teacher
+     * @return index held by the field
+     */
+    public int get(int packed, int field) {
+        return (packed & this.mask[field]) >>> this.shift[field];
+    }
+
+    /**
+     * @param packed
+     * @param field 0 time, 1 room, 2 teacher
+     * @param index new index of the field
+     * @return packed session with the field replaced
+     */
+    public int with(int packed, int field, int index) {
+        return (packed & ~this.mask[field]) | (index << this.shift[field]);
+    }
+
+    /**
+     * Get the bits of a field, eg. to take whole fields from either parent
+     * with (a &amp; m) | (b &amp; ~m)
+     *
+     * @param field 0 time, 1 room, 2 teacher
+     * @return mask
+     */
+    public int mask(int field) {
+        return this.mask[field];
+    }
+
+    /**
+     * Draw a random index for one field of a course session from that
+     * field's domain, as CompiledTimetable.randomGene does for genes
+     *
+     * @param session
+     * @param field 0 time, 1 room, 2 teacher
+     * @param random
+     * @return index
+     */
+    public int randomIndex(int session, int field, GaRandom random) {
+        switch (field) {
+            case 0:
+                return this.compiled.getStartTime(session, random.nextInt(this.compiled.getStartCount(session)));
+            case 1:
+                int count = this.compiled.getFeasibleRoomCount(session);
+                return this.compiled.roomIndex(this.compiled.getFeasibleRoomId(session, random.nextInt(count)));
+            default:
+                int[] teacherIds = this.compiled.getSessionTeacherIds(session);
+                return this.compiled.teacherIndex(teacherIds[random.nextInt(teacherIds.length)]);
+        }
+    }
+
+    /**
+     * @param session
+     * @param random
+     * @return random packed session
+     */
+    public int random(int session, GaRandom random) {
+        return this.pack(this.randomIndex(session, 0, random), this.randomIndex(session, 1, random),
+                this.randomIndex(session, 2, random));
+    }
+
+    /**
+     * Pack an individual's chromosome
+     *
+     * @param individual
+     * @param packed target, one int per course session
+     * @param offset index of the first session in packed
+     */
+    public void encode(Individual individual, int[] packed, int offset) {
+        int numSessions = this.compiled.getNumSessions();
+        if (individual.getChromosomeLength() != numSessions * 3) {
+            throw new IllegalArgumentException("Chromosome length " + individual.getChromosomeLength()
+                    + " does not match the problem");
+        }
+        for (int session = 0; session < numSessions; session++) {
+            packed[offset + session] = this.pack(this.compiled.timeIndex(individual.getGene(session * 3)),
+                    this.compiled.roomIndex(individual.getGene(session * 3 + 1)),
+                    this.compiled.teacherIndex(individual.getGene(session * 3 + 2)));
+        }
+    }
+
+    /**
+     * Unpack a chromosome into an individual, which gets the raw ids used by
+     * Individual chromosomes
+     *
+     * @param packed
+     * @param offset index of the first session in packed
+     * @param individual target with a chromosome of 3 genes per session
+     */
+    public void decode(int[] packed, int offset, Individual individual) {
+        int numSessions = this.compiled.getNumSessions();
+        for (int session = 0; session < numSessions; session++) {
+            int value = packed[offset + session];
+            individual.setGene(session * 3, this.compiled.getTimeId(this.time(value)));
+            individual.setGene(session * 3 + 1, this.compiled.getRoomId(this.room(value)));
+            individual.setGene(session * 3 + 2, this.compiled.getTeacherId(this.teacher(value)));
+        }
+    }
+}
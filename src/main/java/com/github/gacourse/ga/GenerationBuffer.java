@@ -0,0 +1,57 @@
+package com.github.gacourse.ga;
+
+/**
+ * 功能描述：双缓冲种群
+ *
+ * Two flat populations of the same shape (see Population.flat). Each
+ * generation breeds from the current population into the next one, then
+ * the two are swapped, so the evolution loop reuses the same two gene and
+ * fitness arrays for the whole run instead of allocating new populations,
+ * individuals and chromosomes every generation. The heap needed is fixed up
+ * front at 2 x populationSize x chromosomeLength ints.
+ *
+ * @author 邪桑子
+ * @date 2019/10/24 16:20
+ */
+public class GenerationBuffer {
+
+    private Population current;
+    private Population next;
+
+    /**
+     * @param populationSize
+     * @param chromosomeLength
+     */
+    public GenerationBuffer(int populationSize, int chromosomeLength) {
+        this.current = Population.flat(populationSize, chromosomeLength);
+        this.next = Population.flat(populationSize, chromosomeLength);
+    }
+
+    /**
+     * Get the population of the current generation
+     *
+     * @return current population
+     */
+    public Population getCurrent() {
+        return this.current;
+    }
+
+    /**
+     * Get the population the next generation is bred into
+     *
+     * @return next population
+     */
+    public Population getNext() {
+        return this.next;
+    }
+
+    /**
+     * Make the next generation current. The old current population becomes
+     * the target of the following generation and is overwritten by it.
+     */
+    public void swap() {
+        Population population = this.current;
+        this.current = this.next;
+        this.next = population;
+    }
+}
@@ -1,23 +1,276 @@
 package com.github.gacourse.ga;
 
+import com.github.gacourse.ga.selection.SelectionStrategy;
+import com.github.gacourse.ga.selection.TournamentSelection;
+import com.github.gacourse.util.GaRandom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 public class GeneticAlgorithm {
 
     private int populationSize;
     private double mutationRate;
     private double crossoverRate;
-    /**精英计数**/
+    /**精英计数：排名[0, elitismCount)的个体不交叉、不变异**/
     private int elitismCount;
     /**锦标赛规模**/
     protected int tournamentSize;
+    /**交叉、变异、选择使用的随机数流**/
+    private GaRandom random = new GaRandom();
+    /**父代选择策略，默认为锦标赛选择**/
+    private SelectionStrategy selectionStrategy;
+    /**适应度缓存，为空时不缓存**/
+    private FitnessCache fitnessCache;
+    /**增量冲突计算，用于交叉、变异后的快速评分**/
+    private IncrementalEvaluator evaluator;
+    /**并行评估线程数，1表示单线程**/
+    private final int evaluationThreads;
+    private ForkJoinPool evaluationPool;
+    /** 外部共享的线程池，不由本对象关闭 **/
+    private boolean sharedPool;
+    /**每个评估线程独立的增量计算器**/
+    private IncrementalEvaluator[] workerEvaluators;
+    /**局部搜索，为空时不搜索**/
+    private LocalSearch localSearch;
+    /**自适应变异率、交叉率，为空时保持不变**/
+    private AdaptiveRates adaptiveRates;
+    /**停滞检测，为空时不检测**/
+    private StagnationDetector stagnationDetector;
+    private boolean stagnated;
+    /**求解过程监控，默认不记录**/
+    private SolverMonitor monitor = SolverMonitor.NOOP;
+    /**累计评估的个体数（不含沿用适应度及缓存命中的个体），本代选择父代耗时**/
+    private long evaluations;
+    private long selectionNanos;
 
     public GeneticAlgorithm(int populationSize, double mutationRate, double crossoverRate, int elitismCount, int tournamentSize) {
+        this(populationSize, mutationRate, crossoverRate, elitismCount, tournamentSize, 1);
+    }
 
+    /**
+     * @param elitismCount the fittest individuals, ranks 0 to elitismCount - 1, are carried over unchanged
+     *                     by crossover and mutation on both the Individual and the packed path
+     * @param evaluationThreads size of the pool used by evalPopulation; 1 evaluates on the calling thread
+     */
+    public GeneticAlgorithm(int populationSize, double mutationRate, double crossoverRate, int elitismCount, int tournamentSize,
+                            int evaluationThreads) {
+        if (evaluationThreads < 1) {
+            throw new IllegalArgumentException("evaluationThreads must be at least 1");
+        }
         this.populationSize = populationSize;
         this.mutationRate = mutationRate;
         this.crossoverRate = crossoverRate;
         this.elitismCount = elitismCount;
         this.tournamentSize = tournamentSize;
+        this.evaluationThreads = evaluationThreads;
+        this.selectionStrategy = new TournamentSelection(tournamentSize);
+    }
+
+    /**
+     * Replace the strategy used to select parents for crossover
+     *
+     * @param selectionStrategy
+     */
+    public void setSelectionStrategy(SelectionStrategy selectionStrategy) {
+        this.selectionStrategy = selectionStrategy;
+    }
+
+    public SelectionStrategy getSelectionStrategy() {
+        return this.selectionStrategy;
+    }
+
+    /**
+     * Use a fitness cache in evalPopulation, or null to disable caching
+     *
+     * @param fitnessCache
+     */
+    public void setFitnessCache(FitnessCache fitnessCache) {
+        this.fitnessCache = fitnessCache;
+    }
+
+    public FitnessCache getFitnessCache() {
+        return this.fitnessCache;
+    }
+
+    public int getPopulationSize() {
+        return this.populationSize;
+    }
+
+    public double getMutationRate() {
+        return this.mutationRate;
+    }
+
+    /**
+     * Change the mutation rate, eg. between generations
+     *
+     * @param mutationRate
+     */
+    public void setMutationRate(double mutationRate) {
+        if (mutationRate < 0 || mutationRate > 1) {
+            throw new IllegalArgumentException("mutationRate must be in [0, 1]");
+        }
+        this.mutationRate = mutationRate;
+    }
+
+    public double getCrossoverRate() {
+        return this.crossoverRate;
+    }
+
+    /**
+     * Change the crossover rate, eg. between generations
+     *
+     * @param crossoverRate
+     */
+    public void setCrossoverRate(double crossoverRate) {
+        if (crossoverRate < 0 || crossoverRate > 1) {
+            throw new IllegalArgumentException("crossoverRate must be in [0, 1]");
+        }
+        this.crossoverRate = crossoverRate;
+    }
+
+    /**
+     * Adapt the mutation and crossover rates after every generation, or null
+     * to keep them fixed
+     *
+     * @param adaptiveRates
+     */
+    public void setAdaptiveRates(AdaptiveRates adaptiveRates) {
+        this.adaptiveRates = adaptiveRates;
+    }
+
+    public AdaptiveRates getAdaptiveRates() {
+        return this.adaptiveRates;
+    }
+
+    /**
+     * Watch for stagnation after every generation, or null to disable it.
+     * A stagnated run restarts or reports isStagnated, depending on the
+     * detector's action.
+     *
+     * @param stagnationDetector
+     */
+    public void setStagnationDetector(StagnationDetector stagnationDetector) {
+        this.stagnationDetector = stagnationDetector;
+    }
+
+    public StagnationDetector getStagnationDetector() {
+        return this.stagnationDetector;
+    }
+
+    /**
+     * Check whether the run has stagnated and should stop
+     *
+     * @return true if the stagnation detector asked to terminate
+     */
+    public boolean isStagnated() {
+        return this.stagnated;
+    }
+
+    /**
+     * Run a local search on the fittest individuals after every generation's
+     * evaluation, or null to disable it
+     *
+     * @param localSearch
+     */
+    public void setLocalSearch(LocalSearch localSearch) {
+        this.localSearch = localSearch;
+    }
+
+    public LocalSearch getLocalSearch() {
+        return this.localSearch;
+    }
+
+    /**
+     * Report per-generation timings, counts and population state to a
+     * monitor, or null to stop reporting
+     *
+     * @param monitor
+     */
+    public void setMonitor(SolverMonitor monitor) {
+        this.monitor = monitor == null ? SolverMonitor.NOOP : monitor;
+    }
+
+    public SolverMonitor getMonitor() {
+        return this.monitor;
+    }
+
+    /**
+     * Get the number of individuals scored so far, while breeding or by
+     * evalPopulation. Elites and other individuals that keep their fitness,
+     * and fitness cache hits, are not counted.
+     *
+     * @return evaluations since the GA was created
+     */
+    public long getEvaluations() {
+        return this.evaluations;
+    }
+
+    /**
+     * Offspring are scored during crossover and mutation by incremental
+     * deltas only when evaluation is single-threaded and uncached; otherwise
+     * they are left unscored so evalPopulation can look them up in the cache
+     * and score the misses on all evaluation threads.
+     *
+     * @return true if breeding scores offspring
+     */
+    private boolean scoresWhileBreeding() {
+        return this.evaluationThreads == 1 && this.fitnessCache == null;
+    }
+
+    /**
+     * Score an individual through the fitness cache, if any
+     *
+     * @param individual
+     * @param evaluator
+     * @return true if the evaluator was called, false on a cache hit
+     */
+    private boolean score(Individual individual, IncrementalEvaluator evaluator) {
+        FitnessCache cache = this.fitnessCache;
+        if (cache != null) {
+            double fitness = cache.get(individual);
+            if (fitness >= 0) {
+                individual.setFitness(fitness);
+                return false;
+            }
+        }
+        double fitness = toFitness(evaluator.evaluate(individual));
+        individual.setFitness(fitness);
+        if (cache != null) {
+            cache.put(individual, fitness);
+        }
+        return true;
+    }
+
+    /**
+     * Seed the GA. Breeding runs on the calling thread and evaluation uses no
+     * randomness, so a run is reproducible for a given seed and configuration
+     * (number of evaluation threads, fitness cache on or off); those decide
+     * whether offspring are scored while breeding, which affects the order
+     * in which mutation visits them.
+     *
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.random = new GaRandom(seed);
+    }
+
+    /**
+     * Replace the random stream, eg. with one split off a shared root stream
+     *
+     * @param random
+     */
+    public void setRandom(GaRandom random) {
+        this.random = random;
+    }
+
+    public GaRandom getRandom() {
+        return this.random;
     }
 
     /**
@@ -28,10 +281,234 @@ public class GeneticAlgorithm {
      */
     public Population initPopulation(Timetable timetable) {
         // Initialize population
-        Population population = new Population(this.populationSize, timetable);
+        Population population = new Population(this.populationSize, timetable, this.random);
         return population;
     }
 
+    /**
+     * Initialize double-buffered flat populations for an evolution loop that
+     * allocates nothing per generation. The current population is filled
+     * with random individuals; breed into getNext() with
+     * crossoverPopulation(current, next, timetable), swap, then mutate the
+     * new current population with mutatePopulationInPlace.
+     *
+     * @param timetable
+     * @return generations
+     */
+    public GenerationBuffer initGenerations(Timetable timetable) {
+        CompiledTimetable compiled = timetable.compile();
+        GenerationBuffer generations = new GenerationBuffer(this.populationSize, compiled.getNumSessions() * 3);
+        this.stagnated = false;
+        if (this.adaptiveRates != null) {
+            this.adaptiveRates.reset();
+        }
+        if (this.stagnationDetector != null) {
+            this.stagnationDetector.reset();
+        }
+        for (Individual individual : generations.getCurrent().getIndividuals()) {
+            individual.randomize(compiled, this.random);
+        }
+        return generations;
+    }
+
+    /**
+     * Breed one generation on double-buffered populations: crossover from
+     * the current population into the next one, swap, mutate in place,
+     * evaluate and, if configured, improve the fittest individuals by local
+     * search. The time of each phase and the state of the new population
+     * are reported to the monitor, if one is set.
+     * 交叉、变异、评估，完成一代进化
+     *
+     * @param generations
+     * @param timetable
+     * @return the new current population
+     */
+    public Population nextGeneration(GenerationBuffer generations, Timetable timetable) {
+        long evaluationsBefore = this.evaluations;
+        this.selectionNanos = 0;
+        long cacheHits = this.fitnessCache == null ? 0 : this.fitnessCache.getHits();
+
+        long start = System.nanoTime();
+        this.crossoverPopulation(generations.getCurrent(), generations.getNext(), timetable);
+        long crossed = System.nanoTime();
+        generations.swap();
+        Population population = generations.getCurrent();
+        this.mutatePopulationInPlace(population, timetable);
+        long mutated = System.nanoTime();
+        this.evalPopulation(population, timetable);
+        long evaluated = System.nanoTime();
+        if (this.localSearch != null) {
+            this.localSearch.improve(population, this.getEvaluator(timetable), this.random);
+        }
+        long searched = System.nanoTime();
+
+        SolverMonitor monitor = this.monitor;
+        double bestFitness = population.getFittest(0).getFitness();
+        double diversity = monitor != SolverMonitor.NOOP || this.adaptiveRates != null ? diversity(population) : 0;
+        if (monitor != SolverMonitor.NOOP) {
+            monitor.recordSelection(this.selectionNanos);
+            monitor.recordCrossover(crossed - start - this.selectionNanos);
+            monitor.recordMutation(mutated - crossed);
+            monitor.recordEvaluation(evaluated - mutated, (int) (this.evaluations - evaluationsBefore));
+            if (this.localSearch != null) {
+                monitor.recordLocalSearch(searched - evaluated);
+            }
+            if (this.fitnessCache != null) {
+                monitor.recordCacheHits(this.fitnessCache.getHits() - cacheHits);
+            }
+            monitor.recordGeneration(bestFitness, toClashes(bestFitness), diversity);
+        }
+
+        if (this.adaptiveRates != null) {
+            this.adaptiveRates.adapt(this, bestFitness, diversity);
+        }
+        if (this.stagnationDetector != null && this.stagnationDetector.update(bestFitness)) {
+            if (this.stagnationDetector.canRestart()) {
+                this.restartPopulation(population, timetable);
+                this.stagnationDetector.restarted();
+            } else {
+                this.stagnated = true;
+            }
+        }
+        return population;
+    }
+
+    /**
+     * Restart a stagnated population: keep the elites (at least the fittest
+     * individual), re-randomize every other individual and evaluate
+     * 保留精英个体，其余个体重新随机初始化
+     *
+     * @param population
+     * @param timetable
+     */
+    public void restartPopulation(Population population, Timetable timetable) {
+        CompiledTimetable compiled = timetable.compile();
+        int keep = Math.max(1, this.elitismCount);
+        Individual[] ranked = new Individual[population.size()];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = population.getFittest(i);
+        }
+        for (int i = keep; i < ranked.length; i++) {
+            ranked[i].randomize(compiled, this.random);
+        }
+        population.invalidateRanking();
+        this.evalPopulation(population, timetable);
+    }
+
+    /**
+     * Initialize a random population of packed chromosomes, a third of the
+     * memory of initGenerations. Breed it with
+     * nextGeneration(PackedPopulation, PackedPopulation, Timetable).
+     *
+     * @param timetable
+     * @return unscored population
+     * @throws IllegalStateException if the problem is too large to pack
+     */
+    public PackedPopulation initPackedPopulation(Timetable timetable) {
+        PackedPopulation population = new PackedPopulation(new GeneCodec(timetable.compile()), this.populationSize);
+        for (int individual = 0; individual < population.size(); individual++) {
+            population.randomize(individual, this.random);
+        }
+        return population;
+    }
+
+    /**
+     * Score the unscored individuals of a packed population and sum the
+     * population fitness. Runs on the calling thread.
+     *
+     * @param population
+     * @param timetable
+     */
+    public void evalPopulation(PackedPopulation population, Timetable timetable) {
+        IncrementalEvaluator evaluator = this.getEvaluator(timetable);
+        double populationFitness = 0;
+        for (int individual = 0; individual < population.size(); individual++) {
+            if (population.getFitness(individual) < 0) {
+                population.setFitness(individual, toFitness(population.evaluate(individual, evaluator)));
+                this.evaluations++;
+            }
+            populationFitness += population.getFitness(individual);
+        }
+        population.setPopulationFitness(populationFitness);
+    }
+
+    /**
+     * Breed one generation of packed chromosomes from current into next:
+     * elitism, uniform crossover with a second parent picked by the
+     * selection strategy, geometric mutation and evaluation, as for the
+     * Individual based loop.
+     * Local search, adaptive rates, stagnation detection, the fitness cache
+     * and the monitor only apply to that loop. The caller swaps the two
+     * populations afterwards.
+     * 紧凑编码种群的一代进化
+     *
+     * @param current evaluated population
+     * @param next population to breed into, overwritten
+     * @param timetable
+     * @return next, evaluated
+     */
+    public PackedPopulation nextGeneration(PackedPopulation current, PackedPopulation next, Timetable timetable) {
+        if (next == current) {
+            throw new IllegalArgumentException("Cannot breed a population into itself");
+        }
+        if (next.size() != current.size()) {
+            throw new IllegalArgumentException("Population size " + next.size() + " != " + current.size());
+        }
+        GeneCodec codec = current.getCodec();
+        int numSessions = current.getNumSessions();
+        int[] parents = current.getGeneArray();
+        int[] offspring = next.getGeneArray();
+        // 三个字段各自随机取自某个父代，共8种掩码
+        int[] masks = new int[8];
+        for (int bits = 0; bits < masks.length; bits++) {
+            for (int field = 0; field < 3; field++) {
+                if ((bits & (1 << field)) != 0) {
+                    masks[bits] |= codec.mask(field);
+                }
+            }
+        }
+
+        this.selectionStrategy.prepare(current, this.random);
+        for (int rank = 0; rank < current.size(); rank++) {
+            int parent1 = current.getFittest(rank);
+            if (this.crossoverRate > this.random.nextDouble() && rank >= this.elitismCount) {
+                int parent2 = this.selectionStrategy.select(current, this.random);
+                int base1 = parent1 * numSessions;
+                int base2 = parent2 * numSessions;
+                int target = rank * numSessions;
+                for (int session = 0; session < numSessions; session++) {
+                    int mask = masks[this.random.nextInt(8)];
+                    offspring[target + session] = (parents[base1 + session] & mask)
+                            | (parents[base2 + session] & ~mask);
+                }
+                next.setFitness(rank, -1);
+            } else {
+                next.copyFrom(rank, current, parent1);
+            }
+        }
+
+        // 精英个体位于前elitismCount个位置，不参与变异
+        int chromosomeLength = numSessions * 3;
+        for (int individual = this.elitismCount; individual < next.size(); individual++) {
+            int geneIndex = this.nextMutation(-1);
+            if (geneIndex >= chromosomeLength) {
+                continue;
+            }
+            int base = individual * numSessions;
+            while (geneIndex < chromosomeLength) {
+                int session = geneIndex / 3;
+                int field = geneIndex % 3;
+                offspring[base + session] = codec.with(offspring[base + session], field,
+                        codec.randomIndex(session, field, this.random));
+                geneIndex = this.nextMutation(geneIndex);
+            }
+            next.setFitness(individual, -1);
+        }
+
+        this.evalPopulation(next, timetable);
+        return next;
+    }
+
     /**
      * Check if population has met termination condition
      * 判断进化代数是否已达到最大进化代数
@@ -55,6 +532,68 @@ public class GeneticAlgorithm {
         return population.getFittest(0).getFitness() == 1.0;
     }
 
+    /**
+     * Get the incremental evaluator for a timetable, rebuilding it only when
+     * the compiled timetable changes
+     *
+     * @param timetable
+     * @return evaluator
+     */
+    private IncrementalEvaluator getEvaluator(Timetable timetable) {
+        if (this.evaluator == null || this.evaluator.getCompiled() != timetable.compile()) {
+            this.evaluator = new IncrementalEvaluator(timetable);
+        }
+        return this.evaluator;
+    }
+
+    /**
+     * Convert a number of clashes to fitness
+     * 如果没有冲突 适应度为1.0
+     *
+     * @param clashes
+     * @return fitness
+     */
+    private static double toFitness(int clashes) {
+        return 1 / (double) (clashes + 1);
+    }
+
+    /**
+     * Convert a fitness back to the number of clashes
+     *
+     * @param fitness
+     * @return clashes
+     */
+    private static int toClashes(double fitness) {
+        return (int) Math.round(1 / fitness - 1);
+    }
+
+    /**
+     * Estimate population diversity: the mean fraction of genes in which an
+     * individual differs from the fittest one, over at most 16 individuals
+     * spread across the population. 0 means the population has converged.
+     *
+     * @param population
+     * @return diversity in [0, 1]
+     */
+    public static double diversity(Population population) {
+        Individual fittest = population.getFittest(0);
+        int length = fittest.getChromosomeLength();
+        int samples = Math.min(16, population.size());
+        if (length == 0 || samples == 0) {
+            return 0;
+        }
+        long differing = 0;
+        for (int sample = 0; sample < samples; sample++) {
+            Individual individual = population.getIndividual((int) ((long) population.size() * sample / samples));
+            for (int geneIndex = 0; geneIndex < length; geneIndex++) {
+                if (individual.getGene(geneIndex) != fittest.getGene(geneIndex)) {
+                    differing++;
+                }
+            }
+        }
+        return differing / ((double) samples * length);
+    }
+
     /**
      * Calculate individual's fitness value
      *  计算个体的适应度值
@@ -63,18 +602,11 @@ public class GeneticAlgorithm {
      * @return fitness
      */
     public double calcFitness(Individual individual, Timetable timetable) {
-
-        // Create new timetable object to use -- cloned from an existing timetable
-        Timetable threadTimetable = new Timetable(timetable);
-        //生成一个随机组合的课表单，包括班级，课程，随机时段，随机教室，随机授课教师（同一课程可能有多个教师授课，所以随机选择一个教师）
-        threadTimetable.createClazzes(individual);
-
-        //计算当前课表冲突数量
-        int clashes = threadTimetable.calcClashes();
+        //计算当前课表冲突数量，使用占用计数代替两两比较
+        int clashes = this.getEvaluator(timetable).evaluate(individual);
         // Calculate fitness 计算适应度
-        double fitness = 1 / (double) (clashes + 1);
+        double fitness = toFitness(clashes);
 
-        //如果没有冲突 适应度为1.0
         individual.setFitness(fitness);
 
         return fitness;
@@ -83,51 +615,174 @@ public class GeneticAlgorithm {
     /**
      * Evaluate population
      *
+     * Individuals that still carry a fitness (elites passed through
+     * unchanged, or offspring already scored incrementally by crossover and
+     * mutation) are not re-scored, and with a fitness cache, repeated
+     * chromosomes are looked up instead of evaluated. With more than one evaluation thread the
+     * population is split into one contiguous chunk per worker, and every
+     * worker scores its chunk with its own evaluator.
+     *
      * @param population
      * @param timetable
      */
     public void evalPopulation(Population population, Timetable timetable) {
-        double populationFitness = 0;
+        Individual[] individuals = population.getIndividuals();
+        if (this.fitnessCache != null) {
+            this.fitnessCache.bind(timetable.compile());
+        }
+        if (this.evaluationThreads > 1 && individuals.length > 1) {
+            this.evaluations += this.evalParallel(individuals, timetable);
+        } else {
+            IncrementalEvaluator evaluator = this.getEvaluator(timetable);
+            for (Individual individual : individuals) {
+                // 缓存命中不计入评估次数
+                if (individual.getFitness() < 0 && this.score(individual, evaluator)) {
+                    this.evaluations++;
+                }
+            }
+        }
 
-        // Loop over population evaluating individuals and summing population fitness
-        for (Individual individual : population.getIndividuals()) {
+        double populationFitness = 0;
+        // Loop over population summing population fitness
+        for (Individual individual : individuals) {
             //计算种群适应度，即所有个体在种群中的适应度之和
-            populationFitness += this.calcFitness(individual, timetable);
+            populationFitness += individual.getFitness();
         }
         population.setPopulationFitness(populationFitness);
     }
 
     /**
-     * Selects parent for crossover using tournament selection
+     * @return number of individuals the workers' evaluators scored
+     */
+    private int evalParallel(Individual[] individuals, Timetable timetable) {
+        IncrementalEvaluator[] evaluators = this.getWorkerEvaluators(timetable);
+        int chunks = Math.min(evaluators.length, individuals.length);
+
+        List<Callable<Integer>> tasks = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int from = (int) ((long) individuals.length * chunk / chunks);
+            final int to = (int) ((long) individuals.length * (chunk + 1) / chunks);
+            final IncrementalEvaluator evaluator = evaluators[chunk];
+            tasks.add(() -> {
+                int evaluated = 0;
+                for (int i = from; i < to; i++) {
+                    Individual individual = individuals[i];
+                    if (individual.getFitness() < 0 && this.score(individual, evaluator)) {
+                        evaluated++;
+                    }
+                }
+                return evaluated;
+            });
+        }
+
+        ForkJoinPool pool = this.getEvaluationPool();
+        if (ForkJoinTask.getPool() == pool) {
+            // 在共享池的工作线程上：分叉到本地队列，等待时帮助执行其他任务
+            List<ForkJoinTask<Integer>> forks = new ArrayList<>(tasks.size());
+            for (Callable<Integer> task : tasks) {
+                forks.add(ForkJoinTask.adapt(task));
+            }
+            int evaluated = 0;
+            for (ForkJoinTask<Integer> fork : ForkJoinTask.invokeAll(forks)) {
+                evaluated += fork.join();
+            }
+            return evaluated;
+        }
+        try {
+            int evaluated = 0;
+            for (Future<Integer> future : pool.invokeAll(tasks)) {
+                evaluated += future.get();
+            }
+            return evaluated;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Population evaluation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Population evaluation failed", e.getCause());
+        }
+    }
+
+    private IncrementalEvaluator[] getWorkerEvaluators(Timetable timetable) {
+        if (this.workerEvaluators == null || this.workerEvaluators[0].getCompiled() != timetable.compile()) {
+            IncrementalEvaluator[] evaluators = new IncrementalEvaluator[this.evaluationThreads];
+            for (int i = 0; i < evaluators.length; i++) {
+                evaluators[i] = new IncrementalEvaluator(timetable);
+            }
+            this.workerEvaluators = evaluators;
+        }
+        return this.workerEvaluators;
+    }
+
+    private ForkJoinPool getEvaluationPool() {
+        if (this.evaluationPool == null) {
+            this.evaluationPool = new ForkJoinPool(this.evaluationThreads);
+        }
+        return this.evaluationPool;
+    }
+
+    /**
+     * Evaluate on a pool shared with other solves, eg. a SolverScheduler's,
+     * instead of a pool of this GA's own. The population is still split into
+     * evaluationThreads chunks; when evalPopulation runs on a worker of the
+     * pool, the chunks are forked into it and idle workers steal them.
+     * shutdown leaves a shared pool running.
+     *
+     * @param pool
+     */
+    public void setEvaluationPool(ForkJoinPool pool) {
+        this.shutdown();
+        this.evaluationPool = pool;
+        this.sharedPool = pool != null;
+    }
+
+    /**
+     * Get the number of threads used by evalPopulation
+     *
+     * @return evaluationThreads
+     */
+    public int getEvaluationThreads() {
+        return this.evaluationThreads;
+    }
+
+    /**
+     * Release the evaluation pool, unless it is shared. The pool is
+     * recreated if the GA is used again.
+     */
+    public void shutdown() {
+        if (this.evaluationPool != null && !this.sharedPool) {
+            this.evaluationPool.shutdown();
+            this.evaluationPool = null;
+        }
+    }
+
+    /**
+     * Selects parent for crossover using the configured selection strategy
      * 控制竞标值
-     * Tournament selection works by choosing N random individuals, and then
-     * choosing the best of those.
+     * By default this is tournament selection, which works by choosing N
+     * random individuals, and then choosing the best of those.
      *
      * @param population
      * @return The individual selected as a parent
      */
     public Individual selectParent(Population population) {
-        // Create tournament
-        Population tournament = new Population(this.tournamentSize);
-
-        // Add random individuals to the tournament
-        // 随机打乱种群次序
-        population.shuffle();
-        // 选择锦标赛淘汰后的小种群
-        for (int i = 0; i < this.tournamentSize; i++) {
-            Individual tournamentIndividual = population.getIndividual(i);
-            tournament.setIndividual(i, tournamentIndividual);
-        }
-
-        // Return the best
-        //获取最终竞争成功的个体
-        return tournament.getFittest(0);
+        return this.selectionStrategy.select(population, this.random);
     }
 
 
     /**
      * Apply mutation to population 种群变异
      *
+     * Instead of drawing a random number per gene, the distance to the next
+     * mutated gene is drawn from the geometric distribution, and only the
+     * mutated genes get a replacement value sampled from their own domain
+     * (timeslot, room, or that course's teachers). When breeding scores
+     * offspring (see scoresWhileBreeding), mutated individuals are re-scored
+     * incrementally: the chromosome is loaded into the evaluator once and
+     * every mutated gene only updates the clash count by its delta.
+     *
      * @param population
      * @param timetable
      * @return The mutated population
@@ -135,36 +790,79 @@ public class GeneticAlgorithm {
     public Population mutatePopulation(Population population, Timetable timetable) {
         // Initialize new population
         Population newPopulation = new Population(this.populationSize);
+        for (int populationIndex = 0; populationIndex < population.size(); populationIndex++) {
+            // Add individual to population by fitness 按适应度排序
+            newPopulation.setIndividual(populationIndex, population.getFittest(populationIndex));
+        }
+        this.mutatePopulationInPlace(population, timetable);
+
+        // Return mutated population
+        return newPopulation;
+    }
+
+    /**
+     * Apply mutation to the individuals of a population in place, keeping
+     * the elites (ranks 0 to elitismCount - 1) unchanged
+     *
+     * @param population
+     * @param timetable
+     */
+    public void mutatePopulationInPlace(Population population, Timetable timetable) {
+        CompiledTimetable compiled = timetable.compile();
+        IncrementalEvaluator evaluator = this.scoresWhileBreeding() ? this.getEvaluator(timetable) : null;
 
         // Loop over current population by fitness
         for (int populationIndex = 0; populationIndex < population.size(); populationIndex++) {
             //获取适应度最高的个体
             Individual individual = population.getFittest(populationIndex);
 
-            // Create random individual to swap genes with
-            Individual randomIndividual = new Individual(timetable);
-
-            // Loop over individual's genes
-            for (int geneIndex = 0; geneIndex < individual.getChromosomeLength(); geneIndex++) {
-                // Skip mutation if this is an elite individual
-                if (populationIndex > this.elitismCount) {
-                    // Does this gene need mutation?
-                    // 如果发生基因突变
-                    if (this.mutationRate > Math.random()) {
-                        // Swap for new gene
-                        // 替换染色体
-                        individual.setGene(geneIndex, randomIndividual.getGene(geneIndex));
+            // Skip mutation if this is an elite individual
+            if (populationIndex >= this.elitismCount) {
+                int chromosomeLength = individual.getChromosomeLength();
+                // 下一个发生突变的基因位置
+                int geneIndex = this.nextMutation(-1);
+                if (geneIndex < chromosomeLength) {
+                    int clashes = evaluator == null ? 0 : evaluator.evaluate(individual);
+                    while (geneIndex < chromosomeLength) {
+                        // Swap for new gene 替换染色体
+                        int gene = compiled.randomGene(geneIndex, this.random);
+                        individual.setGene(geneIndex, gene);
+                        if (evaluator != null) {
+                            clashes = evaluator.setGene(geneIndex, gene);
+                        }
+                        geneIndex = this.nextMutation(geneIndex);
+                    }
+                    if (evaluator != null) {
+                        individual.setFitness(toFitness(clashes));
+                        this.evaluations++;
                     }
                 }
             }
-
-            // Add individual to population
-            // 更新个体
-            newPopulation.setIndividual(populationIndex, individual);
         }
+        // 变异改变了种群个体的适应度
+        population.invalidateRanking();
+    }
 
-        // Return mutated population
-        return newPopulation;
+    /**
+     * Get the offset of the next gene to mutate after geneIndex. The gap
+     * between mutations is geometric with p = mutationRate, which gives the
+     * same per-gene mutation probability as one draw per gene.
+     *
+     * @param geneIndex last mutated gene, or -1 to start
+     * @return next gene offset, or Integer.MAX_VALUE if none
+     */
+    private int nextMutation(int geneIndex) {
+        if (this.mutationRate >= 1) {
+            return geneIndex + 1;
+        }
+        if (this.mutationRate <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        double skip = Math.floor(Math.log(1 - this.random.nextDouble()) / Math.log(1 - this.mutationRate));
+        if (skip >= Integer.MAX_VALUE - 1 - geneIndex) {
+            return Integer.MAX_VALUE;
+        }
+        return geneIndex + 1 + (int) skip;
     }
 
     /**
@@ -174,42 +872,104 @@ public class GeneticAlgorithm {
      * @return The new population
      */
     public Population crossoverPopulation(Population population) {
+        return this.crossoverPopulation(population, null);
+    }
+
+    /**
+     * Apply crossover to population and, when breeding scores offspring (see
+     * scoresWhileBreeding), score them incrementally: parent1 is loaded into
+     * the evaluator and only the genes inherited from parent2 that differ are
+     * applied as deltas.
+     *
+     * @param population The population to apply crossover to
+     * @param timetable The timetable used to score offspring, or null to leave them unscored
+     * @return The new population
+     */
+    public Population crossoverPopulation(Population population, Timetable timetable) {
         // Create new population
-        Population newPopulation = new Population(population.size());
+        return this.crossoverPopulation(population, new Population(population.size()), timetable);
+    }
+
+    /**
+     * Apply crossover to population, writing the new generation into
+     * newPopulation. Empty slots of newPopulation receive new offspring or
+     * the parent itself; slots that already hold an individual (eg. a flat
+     * population) are overwritten in place, so nothing is allocated.
+     *
+     * @param population The population to apply crossover to
+     * @param newPopulation The population to write the new generation into
+     * @param timetable The timetable used to score offspring, or null to leave them unscored
+     * @return newPopulation
+     */
+    public Population crossoverPopulation(Population population, Population newPopulation, Timetable timetable) {
+        if (newPopulation == population) {
+            throw new IllegalArgumentException("Cannot breed a population into itself");
+        }
+        if (newPopulation.size() != population.size()) {
+            throw new IllegalArgumentException("Population size " + newPopulation.size() + " != " + population.size());
+        }
+        IncrementalEvaluator evaluator = timetable == null || !this.scoresWhileBreeding() ? null : this.getEvaluator(timetable);
+        // 只在有监控时计时，避免每次选择的计时开销
+        boolean timed = this.monitor != SolverMonitor.NOOP;
+        long selectStart = timed ? System.nanoTime() : 0;
+        // 每代构建一次选择所需的数据
+        this.selectionStrategy.prepare(population, this.random);
+        if (timed) {
+            this.selectionNanos += System.nanoTime() - selectStart;
+        }
 
         // Loop over current population by fitness
         for (int populationIndex = 0; populationIndex < population.size(); populationIndex++) {
             //获取适应度最高的个体
             Individual parent1 = population.getFittest(populationIndex);
+            Individual slot = newPopulation.getIndividual(populationIndex);
 
             // Apply crossover to this individual?
-            if (this.crossoverRate > Math.random() && populationIndex >= this.elitismCount) {
+            if (this.crossoverRate > this.random.nextDouble() && populationIndex >= this.elitismCount) {
                 // Initialize offspring
                 // 创建一个新染色体
-                Individual offspring = new Individual(parent1.getChromosomeLength());
+                Individual offspring = slot != null ? slot : new Individual(parent1.getChromosomeLength());
 
                 // Find second parent
+                selectStart = timed ? System.nanoTime() : 0;
                 Individual parent2 = selectParent(population);
+                if (timed) {
+                    this.selectionNanos += System.nanoTime() - selectStart;
+                }
 
+                int clashes = evaluator == null ? 0 : evaluator.evaluate(parent1);
                 // Loop over genome
                 for (int geneIndex = 0; geneIndex < parent1.getChromosomeLength(); geneIndex++) {
                     // Use half of parent1's genes and half of parent2's genes
                     //交叉遗传概率为1/2
-                    if (0.5 > Math.random()) {
+                    if (this.random.nextBoolean()) {
                         offspring.setGene(geneIndex, parent1.getGene(geneIndex));
                     } else {
-                        offspring.setGene(geneIndex, parent2.getGene(geneIndex));
+                        int gene = parent2.getGene(geneIndex);
+                        offspring.setGene(geneIndex, gene);
+                        if (evaluator != null && gene != parent1.getGene(geneIndex)) {
+                            clashes = evaluator.setGene(geneIndex, gene);
+                        }
                     }
                 }
+                if (evaluator != null) {
+                    offspring.setFitness(toFitness(clashes));
+                    this.evaluations++;
+                }
 
                 // Add offspring to new population 替换当前个体为交叉后的新个体
-                newPopulation.setIndividual(populationIndex, offspring);
-            } else {
+                if (slot == null) {
+                    newPopulation.setIndividual(populationIndex, offspring);
+                }
+            } else if (slot == null) {
                 // Add individual to new population without applying crossover
                 // 如果没有发生交叉遗传保持不变
                 newPopulation.setIndividual(populationIndex, parent1);
+            } else {
+                slot.copyFrom(parent1);
             }
         }
+        newPopulation.invalidateRanking();
         return newPopulation;
     }
 }
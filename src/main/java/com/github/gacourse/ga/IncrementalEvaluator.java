@@ -0,0 +1,337 @@
+package com.github.gacourse.ga;
+
+import java.util.Arrays;
+
+/**
+ * 功能描述：增量冲突计算
+ *
+ * Counts the same hard-constraint violations as Timetable.calcClashes, but
+ * keeps room x timeslot and teacher x timeslot occupancy counters instead of
+ * comparing every CourseTable with every other one.
+ *
+ * A course session clashes on a room (or teacher) when the cell it occupies
+ * holds at least two sessions, so a cell holding c sessions contributes c
+ * clashes once c >= 2. A course taught in n consecutive sections occupies n
+ * cells of its room and of its teacher, each counted this way. Loading a
+ * chromosome is O(n); changing a single gene afterwards only touches the
+ * cells the session leaves and enters, so the clash count is updated in
+ * O(1) per section.
+ *
+ * An evaluator holds mutable scratch state and must not be shared between
+ * threads.
+ *
+ * @author 邪桑子
+ * @date 2019/10/18 10:12
+ */
+public class IncrementalEvaluator {
+
+    private final CompiledTimetable compiled;
+    private final int numTimes;
+
+    /** 教室 x 时段、教师 x 时段 占用计数 **/
+    private final int[] roomCells;
+    private final int[] teacherCells;
+
+    /** 每节课当前的开始时段、教室、教师下标 **/
+    private final int[] sessionTime;
+    private final int[] sessionRoom;
+    private final int[] sessionTeacher;
+
+    /** 已载入的课程数，载入中途失败时也能正确清理 **/
+    private int loadedSessions = 0;
+    private int clashes = 0;
+
+    /**
+     * Initialize evaluator for the fixed information of a timetable
+     *
+     * @param timetable
+     */
+    public IncrementalEvaluator(Timetable timetable) {
+        this(timetable.compile());
+    }
+
+    /**
+     * Initialize evaluator for a compiled timetable
+     *
+     * @param compiled
+     */
+    public IncrementalEvaluator(CompiledTimetable compiled) {
+        this.compiled = compiled;
+        this.numTimes = this.compiled.getNumTimes();
+
+        int numSessions = this.compiled.getNumSessions();
+        this.roomCells = new int[this.compiled.getNumRooms() * this.numTimes];
+        this.teacherCells = new int[this.compiled.getNumTeachers() * this.numTimes];
+        this.sessionTime = new int[numSessions];
+        this.sessionRoom = new int[numSessions];
+        this.sessionTeacher = new int[numSessions];
+    }
+
+    /**
+     * Get the compiled timetable this evaluator was built for
+     *
+     * @return compiled timetable
+     */
+    public CompiledTimetable getCompiled() {
+        return this.compiled;
+    }
+
+    /**
+     * Load an individual's chromosome and count its clashes from scratch
+     *
+     * @param individual
+     * @return clashes
+     * @throws IllegalArgumentException if a course session starts outside its time domain
+     */
+    public int evaluate(Individual individual) {
+        return this.load(individual.getGeneArray(), individual.getGeneOffset());
+    }
+
+    /**
+     * Load a chromosome and count its clashes from scratch. Runs in O(n) for
+     * n course sessions.
+     *
+     * @param chromosome
+     * @return clashes
+     * @throws IllegalArgumentException if a course session starts outside its time domain
+     */
+    public int load(int[] chromosome) {
+        return this.load(chromosome, 0);
+    }
+
+    /**
+     * Load a chromosome stored at an offset of a larger gene array, eg. a
+     * flat population, and count its clashes from scratch
+     *
+     * @param genes
+     * @param offset index of the chromosome's first gene
+     * @return clashes
+     * @throws IllegalArgumentException if a course session starts outside its time domain
+     */
+    public int load(int[] genes, int offset) {
+        this.clear();
+
+        int clashes = 0;
+        int numSessions = this.sessionTime.length;
+        for (int session = 0, pos = offset; session < numSessions; session++) {
+            int time = this.compiled.timeIndex(genes[pos++]);
+            int room = this.compiled.roomIndex(genes[pos++]);
+            int teacher = this.compiled.teacherIndex(genes[pos++]);
+            clashes += this.loadSession(session, time, room, teacher);
+        }
+
+        this.clashes = clashes;
+        return clashes;
+    }
+
+    /**
+     * Load a packed chromosome, one int of dense indexes per course session
+     * (see GeneCodec), and count its clashes from scratch. setGene still
+     * takes raw ids afterwards.
+     *
+     * @param packed
+     * @param offset index of the chromosome's first session
+     * @param codec codec of this evaluator's compiled timetable
+     * @return clashes
+     * @throws IllegalArgumentException if a course session starts outside its time domain
+     */
+    public int load(int[] packed, int offset, GeneCodec codec) {
+        if (codec.getCompiled() != this.compiled) {
+            throw new IllegalArgumentException("Codec was built for a different timetable");
+        }
+        this.clear();
+
+        int clashes = 0;
+        int numSessions = this.sessionTime.length;
+        for (int session = 0; session < numSessions; session++) {
+            int value = packed[offset + session];
+            clashes += this.loadSession(session, codec.time(value), codec.room(value), codec.teacher(value));
+        }
+
+        this.clashes = clashes;
+        return clashes;
+    }
+
+    /**
+     * Place the next course session while loading, returning its clashes
+     */
+    private int loadSession(int session, int time, int room, int teacher) {
+        this.compiled.checkStart(session, time);
+        this.sessionTime[session] = time;
+        this.sessionRoom[session] = room;
+        this.sessionTeacher[session] = teacher;
+
+        int length = this.compiled.getSessionLength(session);
+        int clashes = this.capacityClash(session, room);
+        clashes += enter(this.roomCells, room * this.numTimes + time, length);
+        clashes += enter(this.teacherCells, teacher * this.numTimes + time, length);
+        this.loadedSessions++;
+        return clashes;
+    }
+
+    /**
+     * Change one gene of the loaded chromosome and return the updated number
+     * of clashes. Runs in O(1).
+     *
+     * @param offset gene offset in the chromosome
+     * @param gene new timeslot, room or teacher id
+     * @return clashes
+     * @throws IllegalArgumentException if a new time gene is not a valid start of its session
+     */
+    public int setGene(int offset, int gene) {
+        if (this.loadedSessions != this.sessionTime.length) {
+            throw new IllegalStateException("No chromosome loaded");
+        }
+        int session = offset / 3;
+        int time = this.sessionTime[session];
+        int room = this.sessionRoom[session];
+        int teacher = this.sessionTeacher[session];
+        int length = this.compiled.getSessionLength(session);
+
+        switch (offset % 3) {
+            case 0:
+                // 时段变化同时影响教室与教师
+                int newTime = this.compiled.timeIndex(gene);
+                this.compiled.checkStart(session, newTime);
+                if (newTime != time) {
+                    this.clashes += leave(this.roomCells, room * this.numTimes + time, length)
+                            + enter(this.roomCells, room * this.numTimes + newTime, length)
+                            + leave(this.teacherCells, teacher * this.numTimes + time, length)
+                            + enter(this.teacherCells, teacher * this.numTimes + newTime, length);
+                    this.sessionTime[session] = newTime;
+                }
+                break;
+            case 1:
+                int newRoom = this.compiled.roomIndex(gene);
+                if (newRoom != room) {
+                    this.clashes += this.capacityClash(session, newRoom) - this.capacityClash(session, room)
+                            + leave(this.roomCells, room * this.numTimes + time, length)
+                            + enter(this.roomCells, newRoom * this.numTimes + time, length);
+                    this.sessionRoom[session] = newRoom;
+                }
+                break;
+            default:
+                int newTeacher = this.compiled.teacherIndex(gene);
+                if (newTeacher != teacher) {
+                    this.clashes += leave(this.teacherCells, teacher * this.numTimes + time, length)
+                            + enter(this.teacherCells, newTeacher * this.numTimes + time, length);
+                    this.sessionTeacher[session] = newTeacher;
+                }
+                break;
+        }
+        return this.clashes;
+    }
+
+    /**
+     * Check whether a course session of the loaded chromosome takes part in
+     * a clash: it shares its room or teacher with another session in one of
+     * its timeslots, or its room is too small
+     *
+     * @param session
+     * @return true if the session clashes
+     */
+    public boolean isConflicting(int session) {
+        return this.countConflictingCells(session) > 0
+                || this.capacityClash(session, this.sessionRoom[session]) != 0;
+    }
+
+    /**
+     * Count the room and teacher cells of a course session of the loaded
+     * chromosome that hold another session too
+     *
+     * @param session
+     * @return conflicting cells, at most twice the section length
+     */
+    public int countConflictingCells(int session) {
+        int time = this.sessionTime[session];
+        int roomCell = this.sessionRoom[session] * this.numTimes + time;
+        int teacherCell = this.sessionTeacher[session] * this.numTimes + time;
+        int count = 0;
+        for (int k = 0, length = this.compiled.getSessionLength(session); k < length; k++) {
+            if (this.roomCells[roomCell + k] > 1) {
+                count++;
+            }
+            if (this.teacherCells[teacherCell + k] > 1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get clashes of the loaded chromosome
+     *
+     * @return clashes
+     */
+    public int getClashes() {
+        return this.clashes;
+    }
+
+    /**
+     * Reset the occupied cells only, so that reloading stays O(n) instead of
+     * O(rooms x timeslots).
+     */
+    private void clear() {
+        for (int session = 0; session < this.loadedSessions; session++) {
+            int time = this.sessionTime[session];
+            int length = this.compiled.getSessionLength(session);
+            Arrays.fill(this.roomCells, this.sessionRoom[session] * this.numTimes + time,
+                    this.sessionRoom[session] * this.numTimes + time + length, 0);
+            Arrays.fill(this.teacherCells, this.sessionTeacher[session] * this.numTimes + time,
+                    this.sessionTeacher[session] * this.numTimes + time + length, 0);
+        }
+        this.loadedSessions = 0;
+        this.clashes = 0;
+    }
+
+    private int capacityClash(int session, int room) {
+        return this.compiled.getRoomCapacity(room) < this.compiled.getSessionClazzSize(session) ? 1 : 0;
+    }
+
+    /**
+     * Add a session to length consecutive cells, returning the change in
+     * clashes
+     */
+    private static int enter(int[] cells, int cell, int length) {
+        int clashes = 0;
+        for (int k = 0; k < length; k++) {
+            clashes += enter(cells, cell + k);
+        }
+        return clashes;
+    }
+
+    /**
+     * Remove a session from length consecutive cells, returning the change
+     * in clashes
+     */
+    private static int leave(int[] cells, int cell, int length) {
+        int clashes = 0;
+        for (int k = 0; k < length; k++) {
+            clashes += leave(cells, cell + k);
+        }
+        return clashes;
+    }
+
+    /**
+     * Add a session to a cell, returning the change in clashes
+     */
+    private static int enter(int[] cells, int cell) {
+        int count = cells[cell]++;
+        if (count == 1) {
+            // 原占用者与新占用者同时冲突
+            return 2;
+        }
+        return count > 1 ? 1 : 0;
+    }
+
+    /**
+     * Remove a session from a cell, returning the change in clashes
+     */
+    private static int leave(int[] cells, int cell) {
+        int count = cells[cell]--;
+        if (count == 2) {
+            return -2;
+        }
+        return count > 2 ? -1 : 0;
+    }
+}
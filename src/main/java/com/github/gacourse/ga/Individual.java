@@ -1,8 +1,8 @@
 package com.github.gacourse.ga;
 
+import com.github.gacourse.util.GaRandom;
 
-import com.github.gacourse.core.Clazz;
-import com.github.gacourse.core.Course;
+import java.util.Arrays;
 
 /**
  * 功能描述：个体
@@ -14,13 +14,16 @@ public class Individual {
 
     /**
      * In this case, the chromosome is an array of integers rather than a string.
-     * 染色体
+     * 染色体，可能是种群扁平基因数组中从offset开始的一段
      */
-    private int[] chromosome;
+    private final int[] chromosome;
+    private final int offset;
+    private final int length;
     /**
-     * 适应度
+     * 适应度，保存在fitnessStore[slot]，扁平种群中为种群共享的适应度数组
      */
-    private double fitness = -1;
+    private final double[] fitnessStore;
+    private final int slot;
 
     /**
      * Initializes random individual based on a timetable
@@ -42,36 +45,22 @@ public class Individual {
      *            The timetable information
      */
     public Individual(Timetable timetable) {
-        int numClasses = timetable.getNumClazzes();
+        this(timetable, GaRandom.current());
+    }
 
+    /**
+     * Initializes random individual based on a timetable, drawing genes from
+     * the given random stream
+     *
+     * @param timetable
+     *            The timetable information
+     * @param random
+     */
+    public Individual(Timetable timetable, GaRandom random) {
         // 1 gene for room, 1 for time, 1 for teacher
         // “3”指每组染色体都添加timeId，roomId,courseId
-        int chromosomeLength = numClasses * 3;
-        // Create random chromosome 创建染色体组，每3个一组，每组包含时间片段，教室，教师
-        int[] newChromosome = new int[chromosomeLength];
-        int chromosomeIndex = 0;
-        // Loop through clazzs 遍历班级
-        for (Clazz clazz : timetable.getClazzesAsArray()) {
-            // Loop through courses 遍历当前班级的课程
-            for (int courseId : clazz.getCourseIds()) {
-                // Add random time  随机选择上课时间片段
-                int timesLotId = timetable.getRandomTimesLot().getTimeId();
-                newChromosome[chromosomeIndex] = timesLotId;
-                chromosomeIndex++;
-
-                // Add random room 随机选择已个教室
-                int roomId = timetable.getRandomRoom().getRoomId();
-                newChromosome[chromosomeIndex] = roomId;
-                chromosomeIndex++;
-
-                // Add random teacher 随机选择当前课程的授课教师
-                Course course = timetable.getCourse(courseId);
-                newChromosome[chromosomeIndex] = course.getRandomTeacherId();
-                chromosomeIndex++;
-            }
-        }
-
-        this.chromosome = newChromosome;
+        this(new int[timetable.compile().getNumSessions() * 3]);
+        this.randomize(timetable.compile(), random);
     }
 
     /**
@@ -101,8 +90,8 @@ public class Individual {
      */
     public Individual(int chromosomeLength) {
         // Create random individual
-        int[] individual;
-        individual = new int[chromosomeLength];
+        this(new int[chromosomeLength]);
+        int[] individual = this.chromosome;
 
         /**
          * This comment and the for loop doesn't make sense for this chapter.
@@ -120,8 +109,6 @@ public class Individual {
         for (int gene = 0; gene < chromosomeLength; gene++) {
             individual[gene] = gene;
         }
-
-        this.chromosome = individual;
     }
 
     /**
@@ -132,35 +119,110 @@ public class Individual {
      */
     public Individual(int[] chromosome) {
         // Create individual chromosome
-        this.chromosome = chromosome;
+        this(chromosome, 0, chromosome.length, new double[]{-1}, 0);
+    }
+
+    /**
+     * Initializes an individual that is a view of a population's flat
+     * storage: its genes are genes[offset, offset + length) and its fitness
+     * is fitness[slot].
+     *
+     * @param genes
+     * @param offset
+     * @param length
+     * @param fitness
+     * @param slot
+     */
+    Individual(int[] genes, int offset, int length, double[] fitness, int slot) {
+        this.chromosome = genes;
+        this.offset = offset;
+        this.length = length;
+        this.fitnessStore = fitness;
+        this.slot = slot;
+    }
+
+    /**
+     * Fill the chromosome with random genes, each drawn from its own domain
+     *
+     * @param compiled
+     * @param random
+     */
+    void randomize(CompiledTimetable compiled, GaRandom random) {
+        // Loop through course sessions in gene layout order 按基因布局遍历每个班级的每门课程
+        for (int geneIndex = 0; geneIndex < this.length; geneIndex += 3) {
+            // Add random time  随机选择上课时间片段
+            this.chromosome[this.offset + geneIndex] = compiled.randomGene(geneIndex, random);
+
+            // Add random room 随机选择已个教室
+            this.chromosome[this.offset + geneIndex + 1] = compiled.randomGene(geneIndex + 1, random);
+
+            // Add random teacher 随机选择当前课程的授课教师
+            this.chromosome[this.offset + geneIndex + 2] = compiled.randomGene(geneIndex + 2, random);
+        }
+        this.fitnessStore[this.slot] = -1;
+    }
+
+    /**
+     * Overwrite this individual's genes and fitness with another's
+     *
+     * @param other an individual with the same chromosome length
+     */
+    public void copyFrom(Individual other) {
+        if (other.length != this.length) {
+            throw new IllegalArgumentException("Chromosome length " + other.length + " != " + this.length);
+        }
+        System.arraycopy(other.chromosome, other.offset, this.chromosome, this.offset, this.length);
+        this.fitnessStore[this.slot] = other.getFitness();
     }
 
     /**
      * Gets individual's chromosome
      *
+     * For an individual stored in a flat population this is a copy; use
+     * getGene to read genes without allocating.
+     *
      * @return The individual's chromosome
      */
     public int[] getChromosome() {
+        if (this.offset == 0 && this.length == this.chromosome.length) {
+            return this.chromosome;
+        }
+        return Arrays.copyOfRange(this.chromosome, this.offset, this.offset + this.length);
+    }
+
+    /**
+     * Backing gene array, shared with the population for flat storage
+     */
+    int[] getGeneArray() {
         return this.chromosome;
     }
 
+    /**
+     * Offset of gene 0 in the backing gene array
+     */
+    int getGeneOffset() {
+        return this.offset;
+    }
+
     /**
      * Gets individual's chromosome length
      *
      * @return The individual's chromosome length
      */
     public int getChromosomeLength() {
-        return this.chromosome.length;
+        return this.length;
     }
 
     /**
-     * Set gene at offset
+     * Set gene at offset. The stored fitness no longer describes the
+     * chromosome, so it is reset until the individual is scored again.
      *
      * @param gene
      * @param offset
      */
     public void setGene(int offset, int gene) {
-        this.chromosome[offset] = gene;
+        this.chromosome[this.offset + offset] = gene;
+        this.fitnessStore[this.slot] = -1;
     }
 
     /**
@@ -170,7 +232,7 @@ public class Individual {
      * @return gene
      */
     public int getGene(int offset) {
-        return this.chromosome[offset];
+        return this.chromosome[this.offset + offset];
     }
 
     /**
@@ -180,7 +242,7 @@ public class Individual {
      *            The individuals fitness
      */
     public void setFitness(double fitness) {
-        this.fitness = fitness;
+        this.fitnessStore[this.slot] = fitness;
     }
 
     /**
@@ -189,14 +251,14 @@ public class Individual {
      * @return The individual's fitness
      */
     public double getFitness() {
-        return this.fitness;
+        return this.fitnessStore[this.slot];
     }
 
     @Override
     public String toString() {
         String output = "";
-        for (int gene = 0; gene < this.chromosome.length; gene++) {
-            output += this.chromosome[gene] + ",";
+        for (int gene = 0; gene < this.length; gene++) {
+            output += this.chromosome[this.offset + gene] + ",";
         }
         return output;
     }
@@ -212,7 +274,7 @@ public class Individual {
      * @return
      */
     public boolean containsGene(int gene) {
-        for (int i = 0; i < this.chromosome.length; i++) {
+        for (int i = this.offset; i < this.offset + this.length; i++) {
             if (this.chromosome[i] == gene) {
                 return true;
             }
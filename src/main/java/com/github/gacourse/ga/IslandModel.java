@@ -0,0 +1,277 @@
+package com.github.gacourse.ga;
+
+import com.github.gacourse.util.GaRandom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 功能描述：岛屿模型
+ *
+ * Evolves several independent populations ("islands"), each driven by its
+ * own GeneticAlgorithm and so with its own parameters, on separate threads.
+ * Islands evolve on their own for migrationInterval generations; then all
+ * of them stop, and the best migrationSize individuals of every island
+ * replace the worst individuals of its neighbours on the configured
+ * topology. The threads only synchronize at those migration points.
+ *
+ * Every island gets its own random stream split from one seed and migration
+ * happens on the calling thread in island order, so a run is reproducible
+ * for a given seed and island configuration.
+ *
+ * @author 邪桑子
+ * @date 2019/10/28 14:10
+ */
+public class IslandModel {
+
+    /**
+     * Which islands receive the migrants of island i
+     */
+    public enum Topology {
+        /** 环形：迁往下一个岛屿 **/
+        RING,
+        /** 全连接：迁往其他所有岛屿 **/
+        FULLY_CONNECTED,
+        /** 随机：每次迁移随机选择一个其他岛屿 **/
+        RANDOM
+    }
+
+    private final Timetable timetable;
+    private final List<GeneticAlgorithm> islands;
+    private Topology topology = Topology.RING;
+    private int migrationInterval = 20;
+    private int migrationSize = 2;
+    private GaRandom random = new GaRandom();
+
+    private GenerationBuffer[] generations;
+    private int generation;
+
+    /**
+     * @param timetable
+     * @param islands one GeneticAlgorithm per island
+     */
+    public IslandModel(Timetable timetable, List<GeneticAlgorithm> islands) {
+        if (islands.isEmpty()) {
+            throw new IllegalArgumentException("At least one island is required");
+        }
+        this.timetable = timetable;
+        this.islands = new ArrayList<>(islands);
+    }
+
+    public void setTopology(Topology topology) {
+        this.topology = topology;
+    }
+
+    /**
+     * @param migrationInterval generations between two migrations
+     */
+    public void setMigrationInterval(int migrationInterval) {
+        if (migrationInterval < 1) {
+            throw new IllegalArgumentException("migrationInterval must be at least 1");
+        }
+        this.migrationInterval = migrationInterval;
+    }
+
+    /**
+     * @param migrationSize individuals sent by each island per migration
+     */
+    public void setMigrationSize(int migrationSize) {
+        if (migrationSize < 0) {
+            throw new IllegalArgumentException("migrationSize must not be negative");
+        }
+        this.migrationSize = migrationSize;
+    }
+
+    /**
+     * Seed the model; every island GA is given its own stream split from it
+     *
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.random = new GaRandom(seed);
+    }
+
+    /**
+     * Get the number of generations evolved by the last solve, counted in
+     * whole migration intervals (an island that solves the problem stops
+     * early within its interval)
+     *
+     * @return generation
+     */
+    public int getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Evolve all islands until one finds a clash-free timetable, every
+     * island has stagnated (see GeneticAlgorithm.setStagnationDetector) or
+     * maxGenerations generations have passed
+     *
+     * @param maxGenerations
+     * @return a copy of the fittest individual over all islands
+     */
+    public Individual solve(int maxGenerations) {
+        int numIslands = this.islands.size();
+        GaRandom[] streams = this.random.split(numIslands);
+        this.generations = new GenerationBuffer[numIslands];
+        for (int i = 0; i < numIslands; i++) {
+            GeneticAlgorithm ga = this.islands.get(i);
+            ga.setRandom(streams[i]);
+            this.generations[i] = ga.initGenerations(this.timetable);
+            ga.evalPopulation(this.generations[i].getCurrent(), this.timetable);
+        }
+        this.generation = 1;
+
+        ExecutorService executor = Executors.newFixedThreadPool(numIslands);
+        try {
+            while (!this.isSolved() && !this.isStagnated() && this.generation <= maxGenerations) {
+                final int epoch = Math.min(this.migrationInterval, maxGenerations - this.generation + 1);
+                List<Callable<Void>> tasks = new ArrayList<>(numIslands);
+                for (int i = 0; i < numIslands; i++) {
+                    final GeneticAlgorithm ga = this.islands.get(i);
+                    final GenerationBuffer buffer = this.generations[i];
+                    tasks.add(() -> {
+                        for (int g = 0; g < epoch && !ga.isTerminationConditionMet(buffer.getCurrent())
+                                && !ga.isStagnated(); g++) {
+                            ga.nextGeneration(buffer, this.timetable);
+                        }
+                        return null;
+                    });
+                }
+                invokeAll(executor, tasks);
+                this.generation += epoch;
+
+                if (!this.isSolved()) {
+                    this.migrate();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            for (GeneticAlgorithm ga : this.islands) {
+                ga.shutdown();
+            }
+        }
+        return copyOf(this.getFittest());
+    }
+
+    private static Individual copyOf(Individual individual) {
+        Individual copy = new Individual(new int[individual.getChromosomeLength()]);
+        copy.copyFrom(individual);
+        return copy;
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Island evolution interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Island evolution failed", e.getCause());
+        }
+    }
+
+    private boolean isSolved() {
+        for (int i = 0; i < this.islands.size(); i++) {
+            if (this.islands.get(i).isTerminationConditionMet(this.generations[i].getCurrent())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if every island has stagnated
+     */
+    private boolean isStagnated() {
+        for (GeneticAlgorithm ga : this.islands) {
+            if (!ga.isStagnated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Individual getFittest() {
+        Individual best = null;
+        for (GenerationBuffer buffer : this.generations) {
+            Individual candidate = buffer.getCurrent().getFittest(0);
+            if (best == null || candidate.getFitness() > best.getFitness()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Copy the best individuals of every island over the worst individuals
+     * of the islands it sends to
+     */
+    private void migrate() {
+        int numIslands = this.islands.size();
+        if (numIslands < 2 || this.migrationSize == 0) {
+            return;
+        }
+
+        // 先复制所有岛屿的迁出个体，避免迁入覆盖尚未迁出的个体
+        Individual[][] emigrants = new Individual[numIslands][];
+        for (int i = 0; i < numIslands; i++) {
+            Population population = this.generations[i].getCurrent();
+            int count = Math.min(this.migrationSize, population.size());
+            emigrants[i] = new Individual[count];
+            for (int k = 0; k < count; k++) {
+                emigrants[i][k] = copyOf(population.getFittest(k));
+            }
+        }
+
+        // 每个岛屿已被替换的最差个体数
+        int[] replaced = new int[numIslands];
+        for (int source = 0; source < numIslands; source++) {
+            switch (this.topology) {
+                case RING:
+                    this.immigrate(emigrants[source], (source + 1) % numIslands, replaced);
+                    break;
+                case FULLY_CONNECTED:
+                    for (int target = 0; target < numIslands; target++) {
+                        if (target != source) {
+                            this.immigrate(emigrants[source], target, replaced);
+                        }
+                    }
+                    break;
+                default:
+                    int target = this.random.nextInt(numIslands - 1);
+                    this.immigrate(emigrants[source], target >= source ? target + 1 : target, replaced);
+                    break;
+            }
+        }
+
+        for (int i = 0; i < numIslands; i++) {
+            if (replaced[i] > 0) {
+                // 迁入个体带有适应度，这里只重新汇总种群适应度
+                this.islands.get(i).evalPopulation(this.generations[i].getCurrent(), this.timetable);
+            }
+        }
+    }
+
+    private void immigrate(Individual[] migrants, int target, int[] replaced) {
+        Population population = this.generations[target].getCurrent();
+        for (Individual migrant : migrants) {
+            // 保留岛屿自身的精英，只替换最差的个体
+            if (replaced[target] >= population.size() / 2) {
+                return;
+            }
+            population.getFittest(population.size() - 1 - replaced[target]).copyFrom(migrant);
+            replaced[target]++;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.github.gacourse.ga;
+
+import com.github.gacourse.util.GaRandom;
+
+/**
+ * 功能描述：局部搜索（模因算法）
+ *
+ * Hill climbing on the fittest individuals of a generation. A move picks a
+ * clashing course session and tries other timeslots (or other rooms from its
+ * feasible room domain) for it, keeping the first value that lowers the
+ * clash count. Every candidate value costs one delta update of an
+ * IncrementalEvaluator, O(1), and one more to undo it when rejected.
+ *
+ * A room move first asks an OccupancyIndex of the individual for the
+ * smallest feasible room that is free in all the session's timeslots. No
+ * other room can do better, so that room is the only candidate tried; only
+ * when every room is booked are the rooms scanned one by one. The index
+ * only adds bookings, so a room vacated by an accepted move still looks
+ * booked until the next rescan reloads it; that costs candidates, never
+ * correctness, since the evaluator judges every move.
+ *
+ * The budget counts candidate values tried: at most movesPerIndividual per
+ * individual and movesPerGeneration over the topK individuals of one
+ * generation.
+ *
+ * A LocalSearch keeps scratch state and must not be shared between threads.
+ *
+ * @author 邪桑子
+ * @date 2019/11/04 09:30
+ */
+public class LocalSearch {
+
+    private final int topK;
+    private final int movesPerIndividual;
+    private final int movesPerGeneration;
+
+    /** 复用的冲突课程列表 **/
+    private int[] conflicting = new int[0];
+    /** 复用的占用索引，用于查找空闲教室 **/
+    private OccupancyIndex occupancy;
+
+    /**
+     * @param topK number of fittest individuals improved per generation
+     * @param movesPerIndividual candidate values tried per individual
+     * @param movesPerGeneration candidate values tried per generation
+     */
+    public LocalSearch(int topK, int movesPerIndividual, int movesPerGeneration) {
+        if (topK < 1 || movesPerIndividual < 1 || movesPerGeneration < 1) {
+            throw new IllegalArgumentException("topK and move budgets must be at least 1");
+        }
+        this.topK = topK;
+        this.movesPerIndividual = movesPerIndividual;
+        this.movesPerGeneration = movesPerGeneration;
+    }
+
+    public int getTopK() {
+        return this.topK;
+    }
+
+    public int getMovesPerIndividual() {
+        return this.movesPerIndividual;
+    }
+
+    public int getMovesPerGeneration() {
+        return this.movesPerGeneration;
+    }
+
+    /**
+     * Improve the fittest individuals of an evaluated population and update
+     * the population fitness
+     *
+     * @param population evaluated population
+     * @param evaluator
+     * @param random
+     * @return candidate values tried
+     */
+    public int improve(Population population, IncrementalEvaluator evaluator, GaRandom random) {
+        int count = Math.min(this.topK, population.size());
+        // 先取出排名，改进个体会改变适应度
+        Individual[] fittest = new Individual[count];
+        for (int i = 0; i < count; i++) {
+            fittest[i] = population.getFittest(i);
+        }
+
+        int moves = 0;
+        double populationFitness = population.getPopulationFitness();
+        for (int i = 0; i < count && moves < this.movesPerGeneration; i++) {
+            Individual individual = fittest[i];
+            if (individual.getFitness() == 1.0) {
+                continue;
+            }
+            double before = individual.getFitness();
+            int budget = Math.min(this.movesPerIndividual, this.movesPerGeneration - moves);
+            moves += this.improve(individual, evaluator, random, budget);
+            populationFitness += individual.getFitness() - before;
+        }
+        population.setPopulationFitness(populationFitness);
+        return moves;
+    }
+
+    /**
+     * Improve one individual in place and set its fitness
+     *
+     * @param individual
+     * @param evaluator
+     * @param random
+     * @param budget candidate values to try at most
+     * @return candidate values tried
+     */
+    public int improve(Individual individual, IncrementalEvaluator evaluator, GaRandom random, int budget) {
+        CompiledTimetable compiled = evaluator.getCompiled();
+        int clashes = evaluator.evaluate(individual);
+        int numConflicting = this.collectConflicting(evaluator, compiled.getNumSessions());
+        if (this.occupancy == null || this.occupancy.getCompiled() != compiled) {
+            this.occupancy = new OccupancyIndex(compiled);
+        }
+        OccupancyIndex occupancy = this.occupancy;
+        occupancy.load(individual);
+
+        int moves = 0;
+        boolean improvedSinceScan = false;
+        while (moves < budget && clashes > 0) {
+            if (numConflicting == 0) {
+                // 已接受的移动可能产生新的冲突课程，有改进时重新扫描
+                if (!improvedSinceScan) {
+                    break;
+                }
+                numConflicting = this.collectConflicting(evaluator, compiled.getNumSessions());
+                occupancy.load(individual);
+                improvedSinceScan = false;
+                if (numConflicting == 0) {
+                    break;
+                }
+            }
+            int pick = random.nextInt(numConflicting);
+            int session = this.conflicting[pick];
+            if (!evaluator.isConflicting(session)) {
+                this.conflicting[pick] = this.conflicting[--numConflicting];
+                continue;
+            }
+
+            // 随机选择调整时段或教室，从随机位置开始循环尝试
+            boolean moveTime = random.nextBoolean();
+            int offset = session * 3 + (moveTime ? 0 : 1);
+            int domain = moveTime ? compiled.getStartCount(session) : compiled.getFeasibleRoomCount(session);
+            int current = individual.getGene(offset);
+            int before = clashes;
+            int freeRoom = moveTime ? -1 : this.smallestFreeRoom(occupancy, individual, session);
+            if (freeRoom >= 0) {
+                // 空闲教室不会带来教室冲突，其他教室不会更好，只尝试它
+                moves++;
+                clashes = tryGene(individual, evaluator, offset, freeRoom, current, clashes);
+            } else {
+                int start = random.nextInt(domain);
+                for (int k = 0; k < domain && moves < budget && clashes == before; k++) {
+                    int index = (start + k) % domain;
+                    int gene = moveTime ? compiled.getTimeId(compiled.getStartTime(session, index))
+                            : compiled.getFeasibleRoomId(session, index);
+                    if (gene == current) {
+                        continue;
+                    }
+                    moves++;
+                    clashes = tryGene(individual, evaluator, offset, gene, current, clashes);
+                }
+            }
+            if (clashes < before) {
+                // 记录新的占用；原占用保留到下次重新扫描
+                occupancy.add(session, compiled.timeIndex(individual.getGene(session * 3)),
+                        compiled.roomIndex(individual.getGene(session * 3 + 1)),
+                        compiled.teacherIndex(individual.getGene(session * 3 + 2)));
+                improvedSinceScan = true;
+            } else {
+                // 该课程暂无改进，移出列表
+                this.conflicting[pick] = this.conflicting[--numConflicting];
+            }
+        }
+        individual.setFitness(1 / (double) (clashes + 1));
+        return moves;
+    }
+
+    /**
+     * Apply a candidate value if it lowers the clashes, undo it otherwise
+     *
+     * @return clashes after the move, unchanged if it was rejected
+     */
+    private static int tryGene(Individual individual, IncrementalEvaluator evaluator, int offset, int gene,
+                               int current, int clashes) {
+        int candidate = evaluator.setGene(offset, gene);
+        if (candidate < clashes) {
+            individual.setGene(offset, gene);
+            return candidate;
+        }
+        evaluator.setGene(offset, current);
+        return clashes;
+    }
+
+    /**
+     * Find the smallest room that seats the session's clazz and is free in
+     * all the timeslots of the session
+     *
+     * @return roomId, or -1 if there is none
+     */
+    private int smallestFreeRoom(OccupancyIndex occupancy, Individual individual, int session) {
+        CompiledTimetable compiled = occupancy.getCompiled();
+        int time = compiled.timeIndex(individual.getGene(session * 3));
+        int end = time + compiled.getSessionLength(session);
+        int size = compiled.getSessionClazzSize(session);
+        for (int rank = occupancy.nextFreeRoom(time, size, 0); rank >= 0;
+             rank = occupancy.nextFreeRoom(time, size, rank + 1)) {
+            int roomId = compiled.getRoomIdByCapacity(rank);
+            int room = compiled.roomIndex(roomId);
+            int t = time + 1;
+            while (t < end && !occupancy.isRoomBooked(room, t)) {
+                t++;
+            }
+            if (t == end) {
+                return roomId;
+            }
+        }
+        return -1;
+    }
+
+    private int collectConflicting(IncrementalEvaluator evaluator, int numSessions) {
+        if (this.conflicting.length < numSessions) {
+            this.conflicting = new int[numSessions];
+        }
+        int count = 0;
+        for (int session = 0; session < numSessions; session++) {
+            if (evaluator.isConflicting(session)) {
+                this.conflicting[count++] = session;
+            }
+        }
+        return count;
+    }
+}
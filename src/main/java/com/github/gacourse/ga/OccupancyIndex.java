@@ -0,0 +1,240 @@
+package com.github.gacourse.ga;
+
+import java.util.Arrays;
+
+/**
+ * 功能描述：基于位图的占用索引
+ *
+ * Records which rooms and teachers are booked in which timeslots as long[]
+ * bitsets, and counts the same clashes as Timetable.calcClashes in one pass
+ * over the course sessions instead of comparing every pair.
+ *
+ * Every room and every teacher has a "booked" bitset and a "double-booked"
+ * bitset over the timeslots. Adding a session tests and sets one bit of
+ * each: a session landing on a booked cell marks it double-booked and adds
+ * 2 clashes (both occupants) the first time, then 1 for every further
+ * occupant, which is what calcClashes counts.
+ *
+ * A course taught in consecutive sections occupies a run of timeslots, so it
+ * is booked as a mask of those bits: the cells it lands on are the
+ * intersection of the mask with the booked bitset, and each of them counts
+ * as above.
+ *
+ * Booked rooms are also kept per timeslot as a bitset over rooms in
+ * ascending order of capacity. The rooms large enough for a clazz are a
+ * suffix of that order, so "free rooms at t with capacity >= n" is the
+ * complement of one timeslot's bitset masked to that suffix: a few machine
+ * words for hundreds of rooms. LocalSearch uses nextFreeRoom to find the
+ * room a clashing session should move to.
+ *
+ * Sessions can only be added; clear the index to start again. An index
+ * holds mutable state and must not be shared between threads.
+ *
+ * @author 邪桑子
+ * @date 2019/11/09 09:30
+ */
+public class OccupancyIndex {
+
+    private final CompiledTimetable compiled;
+    private final int numTimes;
+    /** 每个教室、教师的时段位图占用的long个数 **/
+    private final int timeWords;
+    /** 每个时段的教室位图占用的long个数 **/
+    private final int roomWords;
+
+    private final long[] roomBooked;
+    private final long[] roomDoubleBooked;
+    private final long[] teacherBooked;
+    private final long[] teacherDoubleBooked;
+    /** 时段 x 按容量排序的教室 **/
+    private final long[] bookedRoomsByTime;
+
+    private int clashes = 0;
+
+    public OccupancyIndex(CompiledTimetable compiled) {
+        this.compiled = compiled;
+        this.numTimes = compiled.getNumTimes();
+        this.timeWords = words(this.numTimes);
+        this.roomWords = words(compiled.getNumRooms());
+        this.roomBooked = new long[compiled.getNumRooms() * this.timeWords];
+        this.roomDoubleBooked = new long[this.roomBooked.length];
+        this.teacherBooked = new long[compiled.getNumTeachers() * this.timeWords];
+        this.teacherDoubleBooked = new long[this.teacherBooked.length];
+        this.bookedRoomsByTime = new long[this.numTimes * this.roomWords];
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    public CompiledTimetable getCompiled() {
+        return this.compiled;
+    }
+
+    /**
+     * Remove every session
+     */
+    public void clear() {
+        Arrays.fill(this.roomBooked, 0);
+        Arrays.fill(this.roomDoubleBooked, 0);
+        Arrays.fill(this.teacherBooked, 0);
+        Arrays.fill(this.teacherDoubleBooked, 0);
+        Arrays.fill(this.bookedRoomsByTime, 0);
+        this.clashes = 0;
+    }
+
+    /**
+     * Clear the index and add every course session of an individual
+     *
+     * @param individual
+     * @return clashes
+     * @throws IllegalArgumentException if a course session starts outside its time domain
+     */
+    public int load(Individual individual) {
+        this.clear();
+        for (int session = 0, length = individual.getChromosomeLength() / 3; session < length; session++) {
+            this.add(session, this.compiled.timeIndex(individual.getGene(session * 3)),
+                    this.compiled.roomIndex(individual.getGene(session * 3 + 1)),
+                    this.compiled.teacherIndex(individual.getGene(session * 3 + 2)));
+        }
+        return this.clashes;
+    }
+
+    /**
+     * Add a course session
+     *
+     * @param session course session, for its clazz size and section length
+     * @param time timeslot index of the first section
+     * @param room room index
+     * @param teacher teacher index
+     * @return clashes of all sessions added so far
+     * @throws IllegalArgumentException if the session may not start on the timeslot
+     */
+    public int add(int session, int time, int room, int teacher) {
+        this.compiled.checkStart(session, time);
+        if (this.compiled.getRoomCapacity(room) < this.compiled.getSessionClazzSize(session)) {
+            this.clashes++;
+        }
+        int end = time + this.compiled.getSessionLength(session);
+        // 连上的时段可能跨越两个long
+        for (int from = time; from < end; from = (from | 63) + 1) {
+            int word = from >>> 6;
+            long mask = lowBits(Math.min(end - (word << 6), 64)) & (-1L << from);
+            this.clashes += book(this.roomBooked, this.roomDoubleBooked, room * this.timeWords + word, mask);
+            this.clashes += book(this.teacherBooked, this.teacherDoubleBooked, teacher * this.timeWords + word, mask);
+        }
+
+        int rank = this.compiled.getRoomCapacityRank(room);
+        for (int t = time; t < end; t++) {
+            this.bookedRoomsByTime[t * this.roomWords + (rank >>> 6)] |= 1L << rank;
+        }
+        return this.clashes;
+    }
+
+    /**
+     * Set the bits of a mask of cells, returning the change in clashes
+     */
+    private static int book(long[] booked, long[] doubleBooked, int word, long mask) {
+        long taken = booked[word] & mask;
+        booked[word] |= mask;
+        if (taken == 0) {
+            return 0;
+        }
+        // 首次重复的格子原占用者与新占用者同时冲突
+        long first = taken & ~doubleBooked[word];
+        doubleBooked[word] |= taken;
+        return Long.bitCount(taken) + Long.bitCount(first);
+    }
+
+    /**
+     * Get clashes of the sessions added so far, as Timetable.calcClashes
+     * counts them
+     *
+     * @return clashes
+     */
+    public int getClashes() {
+        return this.clashes;
+    }
+
+    public boolean isRoomBooked(int room, int time) {
+        return (this.roomBooked[room * this.timeWords + (time >>> 6)] & (1L << time)) != 0;
+    }
+
+    public boolean isRoomDoubleBooked(int room, int time) {
+        return (this.roomDoubleBooked[room * this.timeWords + (time >>> 6)] & (1L << time)) != 0;
+    }
+
+    public boolean isTeacherBooked(int teacher, int time) {
+        return (this.teacherBooked[teacher * this.timeWords + (time >>> 6)] & (1L << time)) != 0;
+    }
+
+    public boolean isTeacherDoubleBooked(int teacher, int time) {
+        return (this.teacherDoubleBooked[teacher * this.timeWords + (time >>> 6)] & (1L << time)) != 0;
+    }
+
+    /**
+     * Count the (room, timeslot) cells holding more than one session
+     *
+     * @return double-booked room cells
+     */
+    public int countDoubleBookedRooms() {
+        return bitCount(this.roomDoubleBooked);
+    }
+
+    /**
+     * Count the (teacher, timeslot) cells holding more than one session
+     *
+     * @return double-booked teacher cells
+     */
+    public int countDoubleBookedTeachers() {
+        return bitCount(this.teacherDoubleBooked);
+    }
+
+    private static int bitCount(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Find the smallest free room at a timeslot that seats at least
+     * minCapacity, or the next one in capacity order after a previous find
+     *
+     * @param time timeslot index
+     * @param minCapacity
+     * @param fromRank capacity rank to search from, 0 for the smallest fitting room
+     * @return capacity rank of the room (see CompiledTimetable.getRoomIdByCapacity), or -1 if none
+     */
+    public int nextFreeRoom(int time, int minCapacity, int fromRank) {
+        int numRooms = this.compiled.getNumRooms();
+        int from = Math.max(fromRank, this.compiled.firstRoomWithCapacity(minCapacity));
+        for (int w = from >>> 6, base = time * this.roomWords; w < this.roomWords; w++) {
+            long free = this.freeWord(base, w, from, numRooms);
+            if (free != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(free);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Free rooms of word w of a timeslot's room bitset, restricted to the
+     * ranks [from, numRooms)
+     */
+    private long freeWord(int base, int w, int from, int numRooms) {
+        long free = ~this.bookedRoomsByTime[base + w] & lowBits(numRooms - (w << 6));
+        if (w == from >>> 6) {
+            free &= -1L << from;
+        }
+        return free;
+    }
+
+    /**
+     * Mask of the lowest n bits of a word, all of them if n >= 64
+     */
+    private static long lowBits(int n) {
+        return n >= 64 ? -1L : (1L << n) - 1;
+    }
+}
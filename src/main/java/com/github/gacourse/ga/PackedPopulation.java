@@ -0,0 +1,235 @@
+package com.github.gacourse.ga;
+
+import com.github.gacourse.util.GaRandom;
+
+import java.util.Arrays;
+
+/**
+ * 功能描述：紧凑编码的种群
+ *
+ * A population whose chromosomes are packed by a GeneCodec: one int per
+ * course session instead of three, so populationSize x numSessions ints in
+ * total. Individuals are addressed by index; their genes are read and
+ * written through getSession/setSession and the codec's field accessors.
+ *
+ * GeneticAlgorithm breeds packed populations with
+ * nextGeneration(PackedPopulation, PackedPopulation, Timetable), using the
+ * same selection strategy, uniform crossover, geometric mutation and
+ * elitism as the Individual based loop. Use toIndividual to decode a result.
+ *
+ * @author 邪桑子
+ * @date 2019/11/08 10:20
+ */
+public class PackedPopulation {
+
+    private final GeneCodec codec;
+    private final int size;
+    private final int numSessions;
+    private final int[] genes;
+    private final double[] fitness;
+    private double populationFitness = -1;
+    /** 按适应度排序的下标，ranked为false时需重新排序 **/
+    private int[] ranking;
+    private int[] scratch;
+    private boolean ranked;
+
+    /**
+     * Initialize an unscored population of zero genes
+     *
+     * @param codec
+     * @param size
+     */
+    public PackedPopulation(GeneCodec codec, int size) {
+        this.codec = codec;
+        this.size = size;
+        this.numSessions = codec.getCompiled().getNumSessions();
+        this.genes = new int[Math.multiplyExact(size, this.numSessions)];
+        this.fitness = new double[size];
+        Arrays.fill(this.fitness, -1);
+    }
+
+    public GeneCodec getCodec() {
+        return this.codec;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getNumSessions() {
+        return this.numSessions;
+    }
+
+    /**
+     * @param individual
+     * @param session
+     * @return packed session
+     */
+    public int getSession(int individual, int session) {
+        return this.genes[individual * this.numSessions + session];
+    }
+
+    /**
+     * Set a packed session. The individual's fitness is reset.
+     *
+     * @param individual
+     * @param session
+     * @param packed
+     */
+    public void setSession(int individual, int session, int packed) {
+        this.genes[individual * this.numSessions + session] = packed;
+        this.setFitness(individual, -1);
+    }
+
+    public double getFitness(int individual) {
+        return this.fitness[individual];
+    }
+
+    public void setFitness(int individual, double fitness) {
+        this.fitness[individual] = fitness;
+        this.ranked = false;
+    }
+
+    public double getPopulationFitness() {
+        return this.populationFitness;
+    }
+
+    public void setPopulationFitness(double populationFitness) {
+        this.populationFitness = populationFitness;
+    }
+
+    /**
+     * Backing array, individual i's sessions start at i x numSessions
+     */
+    int[] getGeneArray() {
+        return this.genes;
+    }
+
+    /**
+     * Fill an individual with random sessions
+     *
+     * @param individual
+     * @param random
+     */
+    public void randomize(int individual, GaRandom random) {
+        int base = individual * this.numSessions;
+        for (int session = 0; session < this.numSessions; session++) {
+            this.genes[base + session] = this.codec.random(session, random);
+        }
+        this.setFitness(individual, -1);
+    }
+
+    /**
+     * Copy an individual, with its fitness, from another population
+     *
+     * @param individual target index
+     * @param source
+     * @param sourceIndividual
+     */
+    public void copyFrom(int individual, PackedPopulation source, int sourceIndividual) {
+        System.arraycopy(source.genes, sourceIndividual * this.numSessions, this.genes,
+                individual * this.numSessions, this.numSessions);
+        this.setFitness(individual, source.fitness[sourceIndividual]);
+    }
+
+    /**
+     * Count an individual's clashes
+     *
+     * @param individual
+     * @param evaluator built for the codec's compiled timetable
+     * @return clashes
+     */
+    public int evaluate(int individual, IncrementalEvaluator evaluator) {
+        return evaluator.load(this.genes, individual * this.numSessions, this.codec);
+    }
+
+    /**
+     * Get the index of the individual of the given fitness rank
+     *
+     * @param rank 0 for the fittest
+     * @return individual
+     */
+    public int getFittest(int rank) {
+        if (!this.ranked) {
+            // 排名缓存到适应度再次变化为止；直接对下标数组排序，不装箱
+            if (this.ranking == null) {
+                this.ranking = new int[this.size];
+                this.scratch = new int[this.size];
+            }
+            for (int i = 0; i < this.size; i++) {
+                this.ranking[i] = i;
+            }
+            this.sortByFitness(0, this.size);
+            this.ranked = true;
+        }
+        return this.ranking[rank];
+    }
+
+    /**
+     * Stable merge sort of ranking[from, to) by descending fitness, so equal
+     * fitness keeps index order
+     */
+    private void sortByFitness(int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        this.sortByFitness(from, mid);
+        this.sortByFitness(mid, to);
+        if (this.fitness[this.ranking[mid - 1]] >= this.fitness[this.ranking[mid]]) {
+            return;
+        }
+        System.arraycopy(this.ranking, from, this.scratch, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right < to && (left == mid || this.fitness[this.scratch[right]] > this.fitness[this.scratch[left]])) {
+                this.ranking[i] = this.scratch[right++];
+            } else {
+                this.ranking[i] = this.scratch[left++];
+            }
+        }
+    }
+
+    /**
+     * Select the fittest of tournamentSize individuals drawn at random
+     *
+     * @param tournamentSize
+     * @param random
+     * @return individual
+     */
+    public int tournament(int tournamentSize, GaRandom random) {
+        int best = random.nextInt(this.size);
+        for (int i = 1; i < tournamentSize; i++) {
+            int candidate = random.nextInt(this.size);
+            if (this.fitness[candidate] > this.fitness[best]) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Unpack an individual
+     *
+     * @param individual
+     * @return individual with raw-id genes and the same fitness
+     */
+    public Individual toIndividual(int individual) {
+        Individual result = new Individual(new int[this.numSessions * 3]);
+        this.codec.decode(this.genes, individual * this.numSessions, result);
+        result.setFitness(this.fitness[individual]);
+        return result;
+    }
+
+    /**
+     * Pack an individual into this population
+     *
+     * @param individual target index
+     * @param source
+     */
+    public void setIndividual(int individual, Individual source) {
+        this.codec.encode(source, this.genes, individual * this.numSessions);
+        this.setFitness(individual, source.getFitness());
+    }
+}
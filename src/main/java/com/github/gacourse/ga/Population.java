@@ -1,7 +1,8 @@
 package com.github.gacourse.ga;
+import com.github.gacourse.util.GaRandom;
+
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Random;
 
 /**
  * 功能描述：种群
@@ -10,8 +11,21 @@ import java.util.Random;
  * @date 2019/9/24 14:50
 */
 public class Population {
+	/**
+	 * Orders individuals by descending fitness
+	 */
+	private static final Comparator<Individual> FITTEST_FIRST = new Comparator<Individual>() {
+		@Override
+		public int compare(Individual o1, Individual o2) {
+			return Double.compare(o2.getFitness(), o1.getFitness());
+		}
+	};
+
 	private Individual[] population;
 	private double populationFitness = -1;
+	/** 按适应度排序的缓存，成员或适应度变化时失效 **/
+	private Individual[] ranking;
+	private boolean rankingValid = false;
 
 	/**
 	 * Initializes blank population of individuals
@@ -31,13 +45,24 @@ public class Population {
      * @param timetable The timetable information
      */
 	public Population(int populationSize, Timetable timetable) {
+		this(populationSize, timetable, GaRandom.current());
+	}
+
+	/**
+	 * Initializes population of individuals drawn from the given random stream
+	 * 
+	 * @param populationSize The size of the population
+	 * @param timetable The timetable information
+	 * @param random
+	 */
+	public Population(int populationSize, Timetable timetable, GaRandom random) {
 		// Initial population
 		this.population = new Individual[populationSize];
 
 		// Loop over population size
 		for (int individualCount = 0; individualCount < populationSize; individualCount++) {
 			// Create individual 生成个体
-			Individual individual = new Individual(timetable);
+			Individual individual = new Individual(timetable, random);
 			// Add individual to population 添加个体到种群
 			this.population[individualCount] = individual;
 		}
@@ -65,6 +90,38 @@ public class Population {
 		}
 	}
 
+	/**
+	 * Initializes a population stored structure-of-arrays style: every
+	 * chromosome lives in one flat int[] of populationSize x chromosomeLength
+	 * genes and every fitness in one double[]. The individuals are views into
+	 * that storage and are created once, so refilling the population in a
+	 * later generation allocates nothing.
+	 * 
+	 * @param populationSize
+	 *            The size of the population
+	 * @param chromosomeLength
+	 *            The length of the individuals chromosome
+	 * @return population with all fitness values unset
+	 */
+	public static Population flat(int populationSize, int chromosomeLength) {
+		int size;
+		try {
+			size = Math.multiplyExact(populationSize, chromosomeLength);
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Population of " + populationSize + " x " + chromosomeLength + " genes is too large");
+		}
+		int[] genes = new int[size];
+		double[] fitness = new double[populationSize];
+		Arrays.fill(fitness, -1);
+
+		Population population = new Population(populationSize);
+		for (int individualCount = 0; individualCount < populationSize; individualCount++) {
+			population.population[individualCount] = new Individual(genes, individualCount * chromosomeLength,
+					chromosomeLength, fitness, individualCount);
+		}
+		return population;
+	}
+
 	/**
 	 * Get individuals from the population
 	 * 
@@ -76,26 +133,36 @@ public class Population {
 
 	/**
 	 * Find fittest individual in the population
+	 *
+	 * The population is ranked once into a separate array and the ranking is
+	 * reused until it is invalidated, so repeated calls are O(1). Replacing an
+	 * individual or setting the population fitness (done after every
+	 * evaluation) invalidates it; code that changes an individual's fitness in
+	 * any other way must call invalidateRanking.
 	 * 
 	 * @param offset
 	 * @return individual Fittest individual at offset
 	 */
 	public Individual getFittest(int offset) {
-		// Order population by fitness
-		Arrays.sort(this.population, new Comparator<Individual>() {
-			@Override
-			public int compare(Individual o1, Individual o2) {
-				if (o1.getFitness() > o2.getFitness()) {
-					return -1;
-				} else if (o1.getFitness() < o2.getFitness()) {
-					return 1;
-				}
-				return 0;
+		if (!this.rankingValid) {
+			// Order population by fitness
+			if (this.ranking == null || this.ranking.length != this.population.length) {
+				this.ranking = new Individual[this.population.length];
 			}
-		});
+			System.arraycopy(this.population, 0, this.ranking, 0, this.population.length);
+			Arrays.sort(this.ranking, FITTEST_FIRST);
+			this.rankingValid = true;
+		}
 
 		// Return the fittest individual
-		return this.population[offset];
+		return this.ranking[offset];
+	}
+
+	/**
+	 * Discard the cached ranking used by getFittest
+	 */
+	public void invalidateRanking() {
+		this.rankingValid = false;
 	}
 
 	/**
@@ -106,6 +173,7 @@ public class Population {
 	 */
 	public void setPopulationFitness(double fitness) {
 		this.populationFitness = fitness;
+		this.rankingValid = false;
 	}
 
 	/**
@@ -134,6 +202,7 @@ public class Population {
 	 * @return individual
 	 */
 	public Individual setIndividual(int offset, Individual individual) {
+		this.rankingValid = false;
 		return population[offset] = individual;
 	}
 
@@ -148,14 +217,23 @@ public class Population {
 	}
 
 	/**
-	 * Shuffles the population in-place
+	 * Shuffles the population in-place. The ranking used by getFittest is
+	 * kept separately and is not affected.
 	 * 调整种群结构
 	 * @return void
 	 */
 	public void shuffle() {
-		Random rnd = new Random();
+		this.shuffle(GaRandom.current());
+	}
+
+	/**
+	 * Shuffles the population in-place using the given random stream
+	 * 
+	 * @param random
+	 */
+	public void shuffle(GaRandom random) {
 		for (int i = population.length - 1; i > 0; i--) {
-			int index = rnd.nextInt(i + 1);
+			int index = random.nextInt(i + 1);
 			Individual a = population[index];
 			population[index] = population[i];
 			population[i] = a;
@@ -0,0 +1,77 @@
+package com.github.gacourse.ga;
+
+/**
+ * 功能描述：求解过程监控
+ *
+ * Receives measurements from the GA loop. Every method has a no-op default,
+ * so an implementation only overrides what it reports, and the GA itself
+ * depends on no metrics library. Times are in nanoseconds and cover one
+ * generation.
+ *
+ * Methods are called from the thread that breeds the population, which may
+ * differ between concurrent solves, so implementations shared by several
+ * solves must be thread-safe.
+ *
+ * @author 邪桑子
+ * @date 2019/11/02 09:40
+ */
+public interface SolverMonitor {
+
+    /** 不做任何记录的监控 **/
+    SolverMonitor NOOP = new SolverMonitor() {
+    };
+
+    /**
+     * @param nanos time spent in evalPopulation
+     * @param evaluations individuals scored this generation, while breeding or in evalPopulation
+     */
+    default void recordEvaluation(long nanos, int evaluations) {
+    }
+
+    /**
+     * @param nanos time spent in crossover, excluding parent selection
+     */
+    default void recordCrossover(long nanos) {
+    }
+
+    /**
+     * @param nanos time spent in mutation
+     */
+    default void recordMutation(long nanos) {
+    }
+
+    /**
+     * @param nanos time spent preparing the selection strategy and selecting parents
+     */
+    default void recordSelection(long nanos) {
+    }
+
+    /**
+     * @param nanos time spent in local search
+     */
+    default void recordLocalSearch(long nanos) {
+    }
+
+    /**
+     * @param hits fitness cache hits this generation
+     */
+    default void recordCacheHits(long hits) {
+    }
+
+    /**
+     * State of the population at the end of a generation
+     *
+     * @param bestFitness
+     * @param clashes clashes of the fittest individual
+     * @param diversity see GeneticAlgorithm.diversity
+     */
+    default void recordGeneration(double bestFitness, int clashes, double diversity) {
+    }
+
+    /**
+     * @param nanos wall time of a whole solve
+     * @param outcome how the solve ended, eg. SOLVED or CANCELLED
+     */
+    default void recordSolve(long nanos, String outcome) {
+    }
+}
@@ -0,0 +1,306 @@
+package com.github.gacourse.ga;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 功能描述：多任务求解调度器
+ *
+ * Runs many independent solves on one shared work-stealing pool, so the
+ * whole machine is bounded by a single global thread cap however many
+ * solves are submitted. A solve is a Task that advances in small steps,
+ * eg. one generation; the scheduler runs a task for one time slice at a
+ * time and then picks the next task, so at most maxRunning tasks hold a
+ * thread at once and the others wait their turn instead of thrashing the
+ * CPU. GAs that evaluate on the same pool (GeneticAlgorithm.setEvaluationPool)
+ * fork their evaluation chunks into it, where idle workers steal them, so
+ * the evaluation work of different solves interleaves.
+ *
+ * Every task is charged the thread time it reserves: the wall time of its
+ * slices times its parallelism. Which task runs next depends on the policy:
+ *
+ * - FAIR: weighted fair queueing. The task with the least charged time per
+ *   unit of weight runs next, so a task of weight 2 gets twice the CPU share
+ *   of a task of weight 1. New tasks start level with the running ones.
+ * - PRIORITY: tasks of higher weight always run first, fair among equals.
+ *
+ * A task with a CPU budget is stopped once its charged time exceeds it.
+ *
+ * @author 邪桑子
+ * @date 2019/11/10 09:30
+ */
+public class SolverScheduler {
+
+    public enum Policy {
+        /** 按权重公平分配 **/
+        FAIR,
+        /** 高优先级优先 **/
+        PRIORITY
+    }
+
+    public enum StopReason {
+        /** CPU预算用完 **/
+        BUDGET_EXHAUSTED,
+        /** 调度器已关闭 **/
+        SHUTDOWN,
+        /** step抛出异常 **/
+        FAILED
+    }
+
+    /**
+     * A solve run in steps. Steps of one task never run concurrently, but
+     * successive steps may run on different threads.
+     */
+    public interface Task {
+
+        /**
+         * Run one step, eg. one generation
+         *
+         * @return true to be scheduled again, false when finished
+         */
+        boolean step();
+
+        /**
+         * Called once if the task is stopped before step returns false
+         *
+         * @param reason
+         * @param error exception thrown by step, if the reason is FAILED; an
+         *              Error or checked exception is wrapped in an IllegalStateException
+         */
+        default void stopped(StopReason reason, RuntimeException error) {
+        }
+    }
+
+    /**
+     * Handle of a submitted task
+     */
+    public final class Ticket {
+        private final Task task;
+        private final int weight;
+        private final int parallelism;
+        private final long cpuBudgetNanos;
+        private final long sequence;
+
+        private long cpuNanos;
+        private double virtualRuntime;
+        private boolean started;
+        private boolean done;
+
+        private Ticket(Task task, int weight, int parallelism, long cpuBudgetNanos, long sequence) {
+            this.task = task;
+            this.weight = weight;
+            this.parallelism = parallelism;
+            this.cpuBudgetNanos = cpuBudgetNanos;
+            this.sequence = sequence;
+        }
+
+        public int getWeight() {
+            return this.weight;
+        }
+
+        /**
+         * @return thread time charged so far
+         */
+        public long getCpuNanos() {
+            synchronized (SolverScheduler.this) {
+                return this.cpuNanos;
+            }
+        }
+
+        /**
+         * Withdraw the task if it has not run yet. A started task is not
+         * interrupted; it has to stop itself from step.
+         *
+         * @return true if the task was withdrawn
+         */
+        public boolean cancel() {
+            synchronized (SolverScheduler.this) {
+                if (this.started || this.done) {
+                    return false;
+                }
+                SolverScheduler.this.ready.remove(this);
+                this.done = true;
+                SolverScheduler.this.admitted--;
+                return true;
+            }
+        }
+    }
+
+    private static final Comparator<Ticket> FAIREST_FIRST = Comparator
+            .<Ticket>comparingDouble(ticket -> ticket.virtualRuntime)
+            .thenComparingLong(ticket -> ticket.sequence);
+
+    private static final Comparator<Ticket> HIGHEST_PRIORITY_FIRST = Comparator
+            .<Ticket>comparingInt(ticket -> -ticket.weight)
+            .thenComparing(FAIREST_FIRST);
+
+    private final ForkJoinPool pool;
+    private final int maxRunning;
+    private final int maxTasks;
+    private final long sliceNanos;
+    private final PriorityQueue<Ticket> ready;
+
+    private int running = 0;
+    /** 已接受且未结束的任务数 **/
+    private int admitted = 0;
+    private long sequence = 0;
+    /** 最近调度任务的虚拟运行时间，新任务从这里开始 **/
+    private double minVirtualRuntime = 0;
+    private boolean shutdown = false;
+
+    /**
+     * @param threads global thread cap, the parallelism of the shared pool
+     * @param maxRunning tasks running a slice at once, at most threads
+     * @param maxTasks tasks admitted at once, running or waiting
+     * @param sliceMillis time a task runs before the next one is picked
+     * @param policy
+     */
+    public SolverScheduler(int threads, int maxRunning, int maxTasks, long sliceMillis, Policy policy) {
+        if (threads < 1 || maxRunning < 1 || maxTasks < 1 || sliceMillis < 1) {
+            throw new IllegalArgumentException("threads, maxRunning, maxTasks and sliceMillis must be at least 1");
+        }
+        this.pool = new ForkJoinPool(threads);
+        this.maxRunning = Math.min(maxRunning, threads);
+        this.maxTasks = maxTasks;
+        this.sliceNanos = TimeUnit.MILLISECONDS.toNanos(sliceMillis);
+        this.ready = new PriorityQueue<>(policy == Policy.PRIORITY ? HIGHEST_PRIORITY_FIRST : FAIREST_FIRST);
+    }
+
+    /**
+     * Get the shared pool, for GeneticAlgorithm.setEvaluationPool
+     *
+     * @return pool
+     */
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * Admit a task
+     *
+     * @param task
+     * @param weight CPU share (FAIR) or priority (PRIORITY), at least 1
+     * @param parallelism threads the task occupies while running, eg. its evaluation threads
+     * @param cpuBudgetMillis thread time after which the task is stopped, 0 for no limit
+     * @return ticket
+     * @throws RejectedExecutionException if maxTasks tasks are admitted or the scheduler is shut down
+     */
+    public synchronized Ticket submit(Task task, int weight, int parallelism, long cpuBudgetMillis) {
+        if (weight < 1 || parallelism < 1 || cpuBudgetMillis < 0) {
+            throw new IllegalArgumentException("weight and parallelism must be at least 1, cpuBudgetMillis not negative");
+        }
+        if (this.shutdown) {
+            throw new RejectedExecutionException("Scheduler is shut down");
+        }
+        if (this.admitted >= this.maxTasks) {
+            throw new RejectedExecutionException("Too many solves: " + this.admitted);
+        }
+        Ticket ticket = new Ticket(task, weight, parallelism,
+                TimeUnit.MILLISECONDS.toNanos(cpuBudgetMillis), this.sequence++);
+        ticket.virtualRuntime = this.minVirtualRuntime;
+        this.admitted++;
+        this.ready.add(ticket);
+        this.dispatch();
+        return ticket;
+    }
+
+    /**
+     * Start slices while threads are free. Called with the lock held.
+     */
+    private void dispatch() {
+        while (this.running < this.maxRunning && !this.ready.isEmpty()) {
+            Ticket ticket = this.ready.poll();
+            ticket.started = true;
+            this.minVirtualRuntime = Math.max(this.minVirtualRuntime, ticket.virtualRuntime);
+            this.running++;
+            this.pool.execute(() -> this.runSlice(ticket));
+        }
+    }
+
+    private void runSlice(Ticket ticket) {
+        long start = System.nanoTime();
+        boolean more = false;
+        StopReason reason = null;
+        RuntimeException error = null;
+        try {
+            do {
+                more = ticket.task.step();
+            } while (more && System.nanoTime() - start < this.sliceNanos && !this.isShutdown());
+        } catch (Throwable e) {
+            // Error也须结束任务，否则任务一直处于运行状态
+            more = false;
+            reason = StopReason.FAILED;
+            error = e instanceof RuntimeException ? (RuntimeException) e
+                    : new IllegalStateException("Solve step failed", e);
+        } finally {
+            long charged = (System.nanoTime() - start) * ticket.parallelism;
+            synchronized (this) {
+                ticket.cpuNanos += charged;
+                ticket.virtualRuntime += (double) charged / ticket.weight;
+                this.running--;
+                if (more && this.shutdown) {
+                    more = false;
+                    reason = StopReason.SHUTDOWN;
+                } else if (more && ticket.cpuBudgetNanos > 0 && ticket.cpuNanos >= ticket.cpuBudgetNanos) {
+                    more = false;
+                    reason = StopReason.BUDGET_EXHAUSTED;
+                }
+                if (more) {
+                    this.ready.add(ticket);
+                } else {
+                    ticket.done = true;
+                    this.admitted--;
+                }
+                this.dispatch();
+            }
+        }
+        if (reason != null) {
+            ticket.task.stopped(reason, error);
+        }
+    }
+
+    private synchronized boolean isShutdown() {
+        return this.shutdown;
+    }
+
+    /**
+     * @return tasks running a slice
+     */
+    public synchronized int getRunning() {
+        return this.running;
+    }
+
+    /**
+     * @return tasks waiting for a slice
+     */
+    public synchronized int getWaiting() {
+        return this.ready.size();
+    }
+
+    /**
+     * Stop admitting tasks. Waiting tasks that have run before are stopped
+     * with SHUTDOWN, those that never ran are dropped; running tasks stop
+     * at the end of their current step.
+     */
+    public void shutdown() {
+        Ticket[] stopped;
+        synchronized (this) {
+            this.shutdown = true;
+            stopped = this.ready.toArray(new Ticket[0]);
+            this.ready.clear();
+            for (Ticket ticket : stopped) {
+                ticket.done = true;
+                this.admitted--;
+            }
+        }
+        for (Ticket ticket : stopped) {
+            if (ticket.started) {
+                ticket.task.stopped(StopReason.SHUTDOWN, null);
+            }
+        }
+        this.pool.shutdown();
+    }
+}
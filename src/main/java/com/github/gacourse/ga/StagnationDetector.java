@@ -0,0 +1,97 @@
+package com.github.gacourse.ga;
+
+/**
+ * 功能描述：停滞检测
+ *
+ * Watches the best fitness of every generation. When it has not improved by
+ * more than minImprovement for patience generations the run has stagnated:
+ * with Action.RESTART the GA re-randomizes all but its elites, up to
+ * maxRestarts times, and with Action.TERMINATE (or once the restarts are
+ * used up) the run stops, so an instance that cannot be solved does not
+ * burn the whole generation budget.
+ *
+ * @author 邪桑子
+ * @date 2019/11/05 10:10
+ */
+public class StagnationDetector {
+
+    /**
+     * What to do when the run stagnates
+     */
+    public enum Action {
+        /** 终止进化 **/
+        TERMINATE,
+        /** 保留精英，重新随机初始化其余个体 **/
+        RESTART
+    }
+
+    private final int patience;
+    private final Action action;
+    private final int maxRestarts;
+    private double minImprovement = 1e-9;
+
+    private double bestFitness = -1;
+    private int staleGenerations;
+    private int restarts;
+
+    /**
+     * @param patience generations without improvement before the run counts as stagnated
+     * @param action
+     * @param maxRestarts restarts allowed before terminating; ignored for Action.TERMINATE
+     */
+    public StagnationDetector(int patience, Action action, int maxRestarts) {
+        if (patience < 1 || maxRestarts < 0) {
+            throw new IllegalArgumentException("patience must be at least 1 and maxRestarts not negative");
+        }
+        this.patience = patience;
+        this.action = action;
+        this.maxRestarts = action == Action.RESTART ? maxRestarts : 0;
+    }
+
+    public void setMinImprovement(double minImprovement) {
+        this.minImprovement = minImprovement;
+    }
+
+    public int getRestarts() {
+        return this.restarts;
+    }
+
+    /**
+     * Forget the fitness history and restarts, eg. before a new run
+     */
+    public void reset() {
+        this.bestFitness = -1;
+        this.staleGenerations = 0;
+        this.restarts = 0;
+    }
+
+    /**
+     * Record the best fitness of a generation
+     *
+     * @param bestFitness
+     * @return true if the run has stagnated
+     */
+    public boolean update(double bestFitness) {
+        if (bestFitness > this.bestFitness + this.minImprovement) {
+            this.bestFitness = bestFitness;
+            this.staleGenerations = 0;
+            return false;
+        }
+        return ++this.staleGenerations >= this.patience;
+    }
+
+    /**
+     * @return true if a stagnated run should restart rather than terminate
+     */
+    public boolean canRestart() {
+        return this.restarts < this.maxRestarts;
+    }
+
+    /**
+     * Record a restart. The best fitness is kept, as the elites survive it.
+     */
+    public void restarted() {
+        this.restarts++;
+        this.staleGenerations = 0;
+    }
+}
@@ -7,6 +7,8 @@ import com.github.gacourse.core.CourseTable;
 import com.github.gacourse.core.Room;
 import com.github.gacourse.core.Teacher;
 import com.github.gacourse.core.TimesLot;
+import com.github.gacourse.util.GaRandom;
+import com.github.gacourse.util.SectionCode;
 
 import java.util.HashMap;
 
@@ -39,8 +41,13 @@ public class Timetable {
     private final HashMap<Integer, Clazz> clazzes;
     private final HashMap<Integer, TimesLot> times;
     private CourseTable[] courseTables;
+    /** 每天的节次划分，为空时每门课只占一个时段 **/
+    private SectionCode sections;
 
-    private int numClazzes = 0;
+    /** 编译后的稠密数组快照，增删数据时失效 **/
+    private CompiledTimetable compiled;
+    /** calcClashes复用的占用索引 **/
+    private OccupancyIndex occupancy;
 
     /**
      * Initialize new Timetable
@@ -71,13 +78,15 @@ public class Timetable {
         this.courses = cloneable.getCourses();
         this.clazzes = cloneable.getClazzes();
         this.times = cloneable.getTimes();
+        this.sections = cloneable.getSections();
+        this.compiled = cloneable.compile();
     }
 
     private HashMap<Integer, Clazz> getClazzes() {
         return this.clazzes;
     }
 
-    private HashMap<Integer, TimesLot> getTimes() {
+    public HashMap<Integer, TimesLot> getTimes() {
         return this.times;
     }
 
@@ -85,7 +94,7 @@ public class Timetable {
         return this.courses;
     }
 
-    private HashMap<Integer, Teacher> getTeachers() {
+    public HashMap<Integer, Teacher> getTeachers() {
         return this.teachers;
     }
 
@@ -98,6 +107,7 @@ public class Timetable {
      */
     public void addRoom(int roomId, String roomName, int capacity) {
         this.rooms.put(roomId, new Room(roomId, roomName, capacity));
+        this.compiled = null;
     }
 
     /**
@@ -108,6 +118,7 @@ public class Timetable {
      */
     public void addTeacher(int teacherId, String teacherName) {
         this.teachers.put(teacherId, new Teacher(teacherId, teacherName));
+        this.compiled = null;
     }
 
     /**
@@ -120,6 +131,22 @@ public class Timetable {
      */
     public void addCourse(int courseId, String courseCode, String courseName, int[] teacherIds) {
         this.courses.put(courseId, new Course(courseId, courseCode, courseName, teacherIds));
+        this.compiled = null;
+    }
+
+    /**
+     * Add new module whose sessions occupy sectionLength consecutive
+     * sections, which needs a section layout (see setSections)
+     *
+     * @param courseId
+     * @param courseCode
+     * @param courseName
+     * @param teacherIds
+     * @param sectionLength
+     */
+    public void addCourse(int courseId, String courseCode, String courseName, int[] teacherIds, int sectionLength) {
+        this.courses.put(courseId, new Course(courseId, courseCode, courseName, teacherIds, sectionLength));
+        this.compiled = null;
     }
 
     /**
@@ -132,7 +159,7 @@ public class Timetable {
      */
     public void addClazz(int clazzId, String clazzName, int numSize, int[] courseIds) {
         this.clazzes.put(clazzId, new Clazz(clazzId, clazzName, numSize, courseIds));
-        this.numClazzes = 0;
+        this.compiled = null;
     }
 
     /**
@@ -143,6 +170,50 @@ public class Timetable {
      */
     public void addTimes(int timeId, String timeName) {
         this.times.put(timeId, new TimesLot(timeId, timeName));
+        this.compiled = null;
+    }
+
+    /**
+     * Lay out the timeslots as days of morning + afternoon + night sections:
+     * in ascending order of timeId, every morning + afternoon + night
+     * timeslots make one day. A course of sectionLength n then starts on any
+     * block of n consecutive sections of SectionCode.getMasks(n) and occupies
+     * the timeslots from there on.
+     *
+     * @param morning 早上节次
+     * @param afternoon 下午节次
+     * @param night 晚上节次
+     * @throws IllegalArgumentException if SectionCode rejects the layout
+     */
+    public void setSections(int morning, int afternoon, int night) {
+        this.sections = SectionCode.of(morning, afternoon, night);
+        this.compiled = null;
+    }
+
+    /**
+     * Get the section layout of a day
+     *
+     * @return sections, or null if every session occupies a single timeslot
+     */
+    public SectionCode getSections() {
+        return this.sections;
+    }
+
+    /**
+     * Freeze the fixed information into an immutable dense-array snapshot.
+     * The snapshot is cached until rooms, teachers, courses, clazzes or
+     * timeslots are added.
+     *
+     * @return compiled timetable
+     */
+    public CompiledTimetable compile() {
+        CompiledTimetable snapshot = this.compiled;
+        if (snapshot == null) {
+            snapshot = new CompiledTimetable(this.rooms, this.times, this.teachers, this.courses, this.getClazzesAsArray(),
+                    this.sections);
+            this.compiled = snapshot;
+        }
+        return snapshot;
     }
 
     /**
@@ -160,33 +231,27 @@ public class Timetable {
      * @param individual
      */
     public void createClazzes(Individual individual) {
+        CompiledTimetable compiled = this.compile();
         // Init courseTables
-        CourseTable[] tables = new CourseTable[this.getNumClazzes()];
+        CourseTable[] tables = new CourseTable[compiled.getNumSessions()];
 
-        // Get individual's chromosome
-        int[] chromosome = individual.getChromosome();
         int chromosomePos = 0;
-        int courseIndex = 0;
 
-        for (Clazz clazz : this.getClazzesAsArray()) {
-            int[] courseIds = clazz.getCourseIds();
-            for (int courseId : courseIds) {
-                tables[courseIndex] = new CourseTable(courseIndex, clazz.getClazzId(), courseId);
+        for (int courseIndex = 0; courseIndex < tables.length; courseIndex++) {
+            tables[courseIndex] = new CourseTable(courseIndex, compiled.getSessionClazzId(courseIndex),
+                    compiled.getSessionCourseId(courseIndex));
 
-                // Add timeslot
-                tables[courseIndex].addTimeId(chromosome[chromosomePos]);
-                chromosomePos++;
+            // Add timeslot
+            tables[courseIndex].addTimeId(individual.getGene(chromosomePos));
+            chromosomePos++;
 
-                // Add room
-                tables[courseIndex].setRoomId(chromosome[chromosomePos]);
-                chromosomePos++;
+            // Add room
+            tables[courseIndex].setRoomId(individual.getGene(chromosomePos));
+            chromosomePos++;
 
-                // Add teacher
-                tables[courseIndex].addTeacher(chromosome[chromosomePos]);
-                chromosomePos++;
-
-                courseIndex++;
-            }
+            // Add teacher
+            tables[courseIndex].addTeacher(individual.getGene(chromosomePos));
+            chromosomePos++;
         }
 
         this.courseTables = tables;
@@ -215,9 +280,18 @@ public class Timetable {
      * @return room
      */
     public Room getRandomRoom() {
-        Object[] roomsArray = this.rooms.values().toArray();
-        Room room = (Room) roomsArray[(int) (roomsArray.length * Math.random())];
-        return room;
+        return this.getRandomRoom(GaRandom.current());
+    }
+
+    /**
+     * Get random room drawn from the given stream
+     *
+     * @param random
+     * @return room
+     */
+    public Room getRandomRoom(GaRandom random) {
+        CompiledTimetable compiled = this.compile();
+        return compiled.getRoom(random.nextInt(compiled.getNumRooms()));
     }
 
     /**
@@ -281,14 +355,29 @@ public class Timetable {
     }
 
     /**
-     * Get random timeslotId
+     * Get random timeslotId. Any timeslot may be returned, which is a valid
+     * start only for a course taught in a single section; use
+     * getRandomTimesLot(session, random) to place a course session.
      *
      * @return timeslot
      */
     public TimesLot getRandomTimesLot() {
-        Object[] timeslotArray = this.times.values().toArray();
-        TimesLot timeslot = (TimesLot) timeslotArray[(int) (timeslotArray.length * Math.random())];
-        return timeslot;
+        CompiledTimetable compiled = this.compile();
+        return compiled.getTimesLot(GaRandom.current().nextInt(compiled.getNumTimes()));
+    }
+
+    /**
+     * Get a random timeslot a course session may start on, drawn from the
+     * given stream, so that a course taught in consecutive sections stays
+     * within one half-day
+     *
+     * @param session course session index (see CompiledTimetable)
+     * @param random
+     * @return first timeslot of the session
+     */
+    public TimesLot getRandomTimesLot(int session, GaRandom random) {
+        CompiledTimetable compiled = this.compile();
+        return compiled.getTimesLot(compiled.getStartTime(session, random.nextInt(compiled.getStartCount(session))));
     }
 
     /**
@@ -306,18 +395,7 @@ public class Timetable {
      * @return numClazzes
      */
     public int getNumClazzes() {
-        if (this.numClazzes > 0) {
-            return this.numClazzes;
-        }
-
-        int numClasses = 0;
-        Clazz[] clazzes = (Clazz[]) this.clazzes.values().toArray(new Clazz[this.clazzes.size()]);
-        for (Clazz clazz : clazzes) {
-            numClasses += clazz.getCourseIds().length;
-        }
-        this.numClazzes = numClasses;
-
-        return this.numClazzes;
+        return this.compile().getNumSessions();
     }
 
     /**
@@ -333,46 +411,30 @@ public class Timetable {
      * times, or rooms), and that return value is used by the
      * GeneticAlgorithm.calcFitness method.
      *
-     * There's nothing too difficult here either -- loop through this.courseTables,
-     * and check constraints against the rest of the this.courseTables.
-     *
-     * The two inner `for` loops can be combined here as an optimization, but
-     * kept separate for clarity. For small values of this.courseTables.length it
-     * doesn't make a difference, but for larger values it certainly does.
+     * Every courseTable whose room is too small counts one clash, and so does
+     * every courseTable that shares its room, or its teacher, with another
+     * one in the same timeslot, once per shared timeslot for courses taught
+     * in consecutive sections. Instead of checking each courseTable against
+     * all the others, the courseTables are added to an OccupancyIndex one by
+     * one, which finds double bookings with a bit test per room and teacher,
+     * so this runs in O(n).
      *
      * @return numClashes
      */
     public int calcClashes() {
-        int clashes = 0;
-
-        for (CourseTable classA : this.courseTables) {
-            // Check room capacity
-            int roomCapacity = this.getRoom(classA.getRoomId()).getRoomCapacity();
-            int clazzSize = this.getClazz(classA.getClazzId()).getNumSize();
-
-            if (roomCapacity < clazzSize) {
-                clashes++;
-            }
-
-            // Check if room is taken
-            for (CourseTable item : this.courseTables) {
-                if (classA.getRoomId() == item.getRoomId() && classA.getTimeId() == item.getTimeId()
-                        && classA.getTableId() != item.getTableId()) {
-                    clashes++;
-                    break;
-                }
-            }
-
-            // Check if teacher is available
-            for (CourseTable item : this.courseTables) {
-                if (classA.getTeacherId() == item.getTeacherId() && classA.getTimeId() == item.getTimeId()
-                        && classA.getTableId() != item.getTableId()) {
-                    clashes++;
-                    break;
-                }
-            }
+        CompiledTimetable compiled = this.compile();
+        OccupancyIndex index = this.occupancy;
+        if (index == null || index.getCompiled() != compiled) {
+            index = new OccupancyIndex(compiled);
+            this.occupancy = index;
+        } else {
+            index.clear();
         }
 
-        return clashes;
+        for (CourseTable table : this.courseTables) {
+            index.add(table.getTableId(), compiled.timeIndex(table.getTimeId()), compiled.roomIndex(table.getRoomId()),
+                    compiled.teacherIndex(table.getTeacherId()));
+        }
+        return index.getClashes();
     }
 }
\ No newline at end of file
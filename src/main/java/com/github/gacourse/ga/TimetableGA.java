@@ -37,11 +37,20 @@ public class TimetableGA {
         Timetable timetable = initializeTimetable();
 
         // Initialize GA
-        GeneticAlgorithm ga = new GeneticAlgorithm(100, 0.01, 0.9, 2, 5);
+        // 每个可用CPU核一个评估线程
+        GeneticAlgorithm ga = new GeneticAlgorithm(100, 0.01, 0.9, 2, 5,
+                Runtime.getRuntime().availableProcessors());
+        // 每代对最优的5个个体做局部搜索
+        ga.setLocalSearch(new LocalSearch(5, 200, 1000));
+        // 变异率、交叉率随进化状态调整；200代没有改进则提前终止
+        ga.setAdaptiveRates(new AdaptiveRates(0.001, 0.1, 0.6, 0.95));
+        ga.setStagnationDetector(new StagnationDetector(200, StagnationDetector.Action.TERMINATE, 0));
 
         // Initialize population
         //初始化种群,随机生成班级，课程，教师，教室，节次组成的课表
-        Population population = ga.initPopulation(timetable);
+        //两个扁平种群交替使用，进化过程中不再分配新的个体
+        GenerationBuffer generations = ga.initGenerations(timetable);
+        Population population = generations.getCurrent();
 
         // Evaluate population
         // 评估种群，计算种群适应度
@@ -54,19 +63,15 @@ public class TimetableGA {
         // Start evolution loop，
         // 如果有冲突进行交叉、变异
         // 逐代进化
-        while (!ga.isTerminationConditionMet(generation, 1000) && !ga.isTerminationConditionMet(population)) {
-            // Apply crossover 交叉
-            population = ga.crossoverPopulation(population);
-
-            // Apply mutation 变异
-            population = ga.mutatePopulation(population, timetable);
-
-            // Evaluate population 评估种群
-            ga.evalPopulation(population, timetable);
+        while (!ga.isTerminationConditionMet(generation, 1000) && !ga.isTerminationConditionMet(population)
+                && !ga.isStagnated()) {
+            // Apply crossover, mutation and evaluate population 交叉、变异、评估种群
+            population = ga.nextGeneration(generations, timetable);
 
             // Increment the current generation
             generation++;
         }
+        ga.shutdown();
 
         // Print fitness
         timetable.createClazzes(population.getFittest(0));
@@ -0,0 +1,333 @@
+package com.github.gacourse.ga;
+
+import com.github.gacourse.util.GaRandom;
+
+/**
+ * 功能描述：排课问题生成器
+ *
+ * Builds reproducible synthetic Timetable instances of any size, for tests,
+ * benchmarks and scale experiments. The size is given by the number of
+ * clazzes and the courses each clazz takes; the tightness of the problem by
+ * three knobs:
+ *
+ * - roomUtilisation: course sessions / (rooms x timeslots), which sets the
+ *   number of rooms
+ * - teacherLoad: course sessions / (teachers x timeslots), which sets the
+ *   number of teachers
+ * - capacity ratio range: every room is sized for a randomly drawn clazz,
+ *   times a ratio drawn from [minCapacityRatio, maxCapacityRatio]; ratios
+ *   below 1 give rooms too small for some clazzes
+ *
+ * The defaults describe a large university: 2,000 clazzes taking 6 courses
+ * each (12,000 course sessions), 60 timeslots, 800 rooms and 2,000 teachers.
+ *
+ * The same seed and settings always generate the same timetable.
+ *
+ * @author 邪桑子
+ * @date 2019/11/01 09:20
+ */
+public class TimetableGenerator {
+
+    private long seed;
+    private int numClazzes = 2000;
+    private int coursesPerClazz = 6;
+    private int numTimes = 60;
+    private double roomUtilisation = 0.25;
+    private double teacherLoad = 0.1;
+    /** 每门课程平均由多少个班级选修 **/
+    private int clazzesPerCourse = 4;
+    private int teachersPerCourse = 2;
+    private int minClazzSize = 20;
+    private int maxClazzSize = 120;
+    private double minCapacityRatio = 0.9;
+    private double maxCapacityRatio = 1.6;
+
+    public TimetableGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setNumClazzes(int numClazzes) {
+        requirePositive(numClazzes, "numClazzes");
+        this.numClazzes = numClazzes;
+    }
+
+    public void setCoursesPerClazz(int coursesPerClazz) {
+        requirePositive(coursesPerClazz, "coursesPerClazz");
+        this.coursesPerClazz = coursesPerClazz;
+    }
+
+    public void setNumTimes(int numTimes) {
+        requirePositive(numTimes, "numTimes");
+        this.numTimes = numTimes;
+    }
+
+    /**
+     * @param roomUtilisation course sessions / (rooms x timeslots), in (0, 1]
+     */
+    public void setRoomUtilisation(double roomUtilisation) {
+        requireFraction(roomUtilisation, "roomUtilisation");
+        this.roomUtilisation = roomUtilisation;
+    }
+
+    /**
+     * @param teacherLoad course sessions / (teachers x timeslots), in (0, 1]
+     */
+    public void setTeacherLoad(double teacherLoad) {
+        requireFraction(teacherLoad, "teacherLoad");
+        this.teacherLoad = teacherLoad;
+    }
+
+    public void setClazzesPerCourse(int clazzesPerCourse) {
+        requirePositive(clazzesPerCourse, "clazzesPerCourse");
+        this.clazzesPerCourse = clazzesPerCourse;
+    }
+
+    public void setTeachersPerCourse(int teachersPerCourse) {
+        requirePositive(teachersPerCourse, "teachersPerCourse");
+        this.teachersPerCourse = teachersPerCourse;
+    }
+
+    /**
+     * @param minClazzSize smallest clazz
+     * @param maxClazzSize largest clazz
+     */
+    public void setClazzSize(int minClazzSize, int maxClazzSize) {
+        requirePositive(minClazzSize, "minClazzSize");
+        if (maxClazzSize < minClazzSize) {
+            throw new IllegalArgumentException("maxClazzSize must not be less than minClazzSize");
+        }
+        this.minClazzSize = minClazzSize;
+        this.maxClazzSize = maxClazzSize;
+    }
+
+    /**
+     * @param minCapacityRatio smallest room capacity relative to the clazz it is sized for
+     * @param maxCapacityRatio largest room capacity relative to the clazz it is sized for
+     */
+    public void setCapacityRatio(double minCapacityRatio, double maxCapacityRatio) {
+        if (minCapacityRatio <= 0 || maxCapacityRatio < minCapacityRatio) {
+            throw new IllegalArgumentException("Capacity ratios must be positive and ordered");
+        }
+        this.minCapacityRatio = minCapacityRatio;
+        this.maxCapacityRatio = maxCapacityRatio;
+    }
+
+    public int getNumSessions() {
+        return this.numClazzes * this.coursesPerClazz;
+    }
+
+    public int getNumRooms() {
+        return Math.max(1, (int) Math.ceil(this.getNumSessions() / (this.roomUtilisation * this.numTimes)));
+    }
+
+    public int getNumTeachers() {
+        int numTeachers = (int) Math.ceil(this.getNumSessions() / (this.teacherLoad * this.numTimes));
+        return Math.max(this.teachersPerCourse, numTeachers);
+    }
+
+    public int getNumCourses() {
+        int numCourses = (int) Math.ceil((double) this.getNumSessions() / this.clazzesPerCourse);
+        return Math.max(this.coursesPerClazz, numCourses);
+    }
+
+    /**
+     * Generate a timetable. IDs start at 1.
+     *
+     * @return timetable
+     */
+    public Timetable generate() {
+        GaRandom random = new GaRandom(this.seed);
+        Timetable timetable = new Timetable();
+
+        for (int i = 1; i <= this.numTimes; i++) {
+            timetable.addTimes(i, "T" + i);
+        }
+
+        int numTeachers = this.getNumTeachers();
+        for (int i = 1; i <= numTeachers; i++) {
+            timetable.addTeacher(i, "Teacher " + i);
+        }
+
+        // 教师按随机排列轮流分配给课程，使每位教师的课程数大致相等
+        int[] teacherOrder = permutation(numTeachers, random);
+        int numCourses = this.getNumCourses();
+        for (int i = 1; i <= numCourses; i++) {
+            int[] teacherIds = new int[this.teachersPerCourse];
+            for (int k = 0; k < teacherIds.length; k++) {
+                teacherIds[k] = 1 + teacherOrder[(int) (((long) (i - 1) * this.teachersPerCourse + k) % numTeachers)];
+            }
+            timetable.addCourse(i, "C" + i, "Course " + i, teacherIds);
+        }
+
+        int[] clazzSizes = new int[this.numClazzes];
+        for (int i = 1; i <= this.numClazzes; i++) {
+            int[] courseIds = new int[this.coursesPerClazz];
+            for (int k = 0; k < courseIds.length; k++) {
+                courseIds[k] = distinctCourse(courseIds, k, numCourses, random);
+            }
+            clazzSizes[i - 1] = this.minClazzSize + random.nextInt(this.maxClazzSize - this.minClazzSize + 1);
+            timetable.addClazz(i, "Clazz " + i, clazzSizes[i - 1], courseIds);
+        }
+
+        // 教室按随机班级人数乘以容量比例确定容量
+        int numRooms = this.getNumRooms();
+        for (int i = 1; i <= numRooms; i++) {
+            int size = clazzSizes[random.nextInt(clazzSizes.length)];
+            double ratio = this.minCapacityRatio + random.nextDouble() * (this.maxCapacityRatio - this.minCapacityRatio);
+            timetable.addRoom(i, "R" + i, Math.max(1, (int) Math.round(size * ratio)));
+        }
+        return timetable;
+    }
+
+    /**
+     * Draw a courseId not among the first count courseIds
+     */
+    private static int distinctCourse(int[] courseIds, int count, int numCourses, GaRandom random) {
+        while (true) {
+            int courseId = 1 + random.nextInt(numCourses);
+            boolean taken = false;
+            for (int k = 0; k < count && !taken; k++) {
+                taken = courseIds[k] == courseId;
+            }
+            if (!taken) {
+                return courseId;
+            }
+        }
+    }
+
+    private static int[] permutation(int n, GaRandom random) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    private static void requirePositive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be at least 1");
+        }
+    }
+
+    private static void requireFraction(double value, String name) {
+        if (value <= 0 || value > 1) {
+            throw new IllegalArgumentException(name + " must be in (0, 1]");
+        }
+    }
+
+    /**
+     * Generate a problem and optionally evolve it for a few generations to
+     * measure time per generation. Settings are given as key=value:
+     * seed, clazzes, coursesPerClazz, times, roomUtilisation, teacherLoad,
+     * clazzesPerCourse, teachersPerCourse, population, generations, threads,
+     * packed (true to evolve packed chromosomes, see PackedPopulation).
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        TimetableGenerator generator = new TimetableGenerator(1);
+        int populationSize = 100;
+        int generations = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean packed = false;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "seed":
+                    generator.setSeed(Long.parseLong(value));
+                    break;
+                case "clazzes":
+                    generator.setNumClazzes(Integer.parseInt(value));
+                    break;
+                case "coursesPerClazz":
+                    generator.setCoursesPerClazz(Integer.parseInt(value));
+                    break;
+                case "times":
+                    generator.setNumTimes(Integer.parseInt(value));
+                    break;
+                case "roomUtilisation":
+                    generator.setRoomUtilisation(Double.parseDouble(value));
+                    break;
+                case "teacherLoad":
+                    generator.setTeacherLoad(Double.parseDouble(value));
+                    break;
+                case "clazzesPerCourse":
+                    generator.setClazzesPerCourse(Integer.parseInt(value));
+                    break;
+                case "teachersPerCourse":
+                    generator.setTeachersPerCourse(Integer.parseInt(value));
+                    break;
+                case "population":
+                    populationSize = Integer.parseInt(value);
+                    break;
+                case "generations":
+                    generations = Integer.parseInt(value);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "packed":
+                    packed = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting " + key);
+            }
+        }
+
+        long start = System.nanoTime();
+        Timetable timetable = generator.generate();
+        CompiledTimetable compiled = timetable.compile();
+        System.out.printf("Generated %d sessions, %d rooms, %d timeslots, %d teachers, %d courses in %d ms%n",
+                compiled.getNumSessions(), compiled.getNumRooms(), compiled.getNumTimes(), compiled.getNumTeachers(),
+                generator.getNumCourses(), (System.nanoTime() - start) / 1000000);
+        if (generations < 1) {
+            return;
+        }
+
+        GeneticAlgorithm ga = new GeneticAlgorithm(populationSize, 0.01, 0.9, 2, 5, threads);
+        ga.setSeed(generator.seed);
+        if (packed) {
+            PackedPopulation current = ga.initPackedPopulation(timetable);
+            PackedPopulation next = new PackedPopulation(current.getCodec(), populationSize);
+            ga.evalPopulation(current, timetable);
+            start = System.nanoTime();
+            for (int generation = 1; generation <= generations; generation++) {
+                PackedPopulation bred = ga.nextGeneration(current, next, timetable);
+                next = current;
+                current = bred;
+            }
+            long elapsed = System.nanoTime() - start;
+            ga.shutdown();
+            System.out.printf("%d packed generations of %d individuals: %.1f ms/generation, best fitness %.6f%n",
+                    generations, populationSize, elapsed / 1e6 / generations,
+                    current.getFitness(current.getFittest(0)));
+            return;
+        }
+        GenerationBuffer buffer = ga.initGenerations(timetable);
+        ga.evalPopulation(buffer.getCurrent(), timetable);
+        Population population = buffer.getCurrent();
+        start = System.nanoTime();
+        for (int generation = 1; generation <= generations; generation++) {
+            population = ga.nextGeneration(buffer, timetable);
+        }
+        long elapsed = System.nanoTime() - start;
+        ga.shutdown();
+        System.out.printf("%d generations of %d individuals: %.1f ms/generation, best fitness %.6f%n",
+                generations, populationSize, elapsed / 1e6 / generations, population.getFittest(0).getFitness());
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.gacourse.ga;
+
+import com.github.gacourse.util.GaRandom;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 功能描述：基于已有课表的热启动
+ *
+ * Seeds a re-solve from the best individual of a previous solve instead of
+ * a random population. Course sessions are matched between the two
+ * problems by (clazzId, courseId) and, for a course taught several times a
+ * week, by occurrence, so the old solution carries over even if
+ * clazzes were added or removed and the gene layout shifted. A session
+ * gets fresh random genes if it is new or touches the ChangeSet; a single
+ * gene is redrawn if its old value is no longer in its domain, eg. a room
+ * that became too small. All other genes keep their old values.
+ *
+ * The first individual is the carried-over solution itself. The others
+ * draw the affected genes independently and also redraw a small fraction
+ * (perturbationRate) of the unaffected ones, so crossover has something to
+ * work with. Together with local search, which goes straight for clashing
+ * sessions, a small edit is usually repaired within a few generations.
+ *
+ * @author 邪桑子
+ * @date 2019/11/07 10:10
+ */
+public class WarmStart {
+
+    private final CompiledTimetable previous;
+    private final int[] solution;
+    private final ChangeSet changes;
+    private double perturbationRate = 0.02;
+    private int redrawnGenes;
+
+    /**
+     * @param previous the problem that was solved
+     * @param solution best individual of that solve
+     * @param changes changes made to the problem since
+     */
+    public WarmStart(Timetable previous, Individual solution, ChangeSet changes) {
+        this.previous = previous.compile();
+        if (solution.getChromosomeLength() != this.previous.getNumSessions() * 3) {
+            throw new IllegalArgumentException("Solution does not belong to the previous timetable");
+        }
+        this.solution = solution.getChromosome().clone();
+        this.changes = changes;
+    }
+
+    /**
+     * @param perturbationRate fraction of unaffected genes redrawn in every individual but the first
+     */
+    public void setPerturbationRate(double perturbationRate) {
+        if (perturbationRate < 0 || perturbationRate > 1) {
+            throw new IllegalArgumentException("perturbationRate must be in [0, 1]");
+        }
+        this.perturbationRate = perturbationRate;
+    }
+
+    public double getPerturbationRate() {
+        return this.perturbationRate;
+    }
+
+    /**
+     * Get the number of genes of the first individual that did not carry
+     * over from the old solution in the last initGenerations
+     *
+     * @return redrawn genes
+     */
+    public int getRedrawnGenes() {
+        return this.redrawnGenes;
+    }
+
+    /**
+     * Initialize double-buffered populations seeded from the old solution,
+     * in place of GeneticAlgorithm.initGenerations
+     *
+     * @param ga
+     * @param timetable the changed problem
+     * @return generations, not yet evaluated
+     */
+    public GenerationBuffer initGenerations(GeneticAlgorithm ga, Timetable timetable) {
+        // 先按常规随机初始化，再用旧解覆盖未受影响的基因
+        GenerationBuffer generations = ga.initGenerations(timetable);
+        int[] carried = this.carryOver(timetable.compile());
+
+        GaRandom random = ga.getRandom();
+        Individual[] individuals = generations.getCurrent().getIndividuals();
+        for (int i = 0; i < individuals.length; i++) {
+            Individual individual = individuals[i];
+            double rate = i == 0 ? 0 : this.perturbationRate;
+            for (int offset = 0; offset < carried.length; offset++) {
+                if (carried[offset] >= 0 && (rate == 0 || random.nextDouble() >= rate)) {
+                    individual.setGene(offset, carried[offset]);
+                }
+            }
+        }
+        return generations;
+    }
+
+    /**
+     * Map the old solution onto the new gene layout. A course a clazz takes
+     * several times a week has one session per occurrence; the n-th
+     * occurrence in the new layout takes the genes of the n-th in the old.
+     *
+     * @param current
+     * @return genes that carry over, -1 where a gene must be redrawn
+     */
+    private int[] carryOver(CompiledTimetable current) {
+        // 同一班级同一课程的各次课，按出现顺序排列
+        Map<Long, List<Integer>> oldSessions = new HashMap<>();
+        for (int session = 0; session < this.previous.getNumSessions(); session++) {
+            oldSessions.computeIfAbsent(sessionKey(this.previous.getSessionClazzId(session),
+                    this.previous.getSessionCourseId(session)), key -> new ArrayList<>()).add(session);
+        }
+        Map<Long, int[]> occurrences = new HashMap<>();
+
+        int[] carried = new int[current.getNumSessions() * 3];
+        this.redrawnGenes = 0;
+        for (int session = 0; session < current.getNumSessions(); session++) {
+            int clazzId = current.getSessionClazzId(session);
+            int courseId = current.getSessionCourseId(session);
+            long key = sessionKey(clazzId, courseId);
+            int occurrence = occurrences.computeIfAbsent(key, k -> new int[1])[0]++;
+            List<Integer> olds = oldSessions.get(key);
+            Integer old = olds == null || occurrence >= olds.size() ? null : olds.get(occurrence);
+            int offset = session * 3;
+            if (old == null || this.changes.isAffected(clazzId, courseId, this.solution[old * 3 + 1],
+                    this.solution[old * 3 + 2])) {
+                carried[offset] = carried[offset + 1] = carried[offset + 2] = -1;
+                this.redrawnGenes += 3;
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                int gene = this.solution[old * 3 + k];
+                if (current.isInDomain(offset + k, gene)) {
+                    carried[offset + k] = gene;
+                } else {
+                    carried[offset + k] = -1;
+                    this.redrawnGenes++;
+                }
+            }
+        }
+        return carried;
+    }
+
+    private static long sessionKey(int clazzId, int courseId) {
+        return ((long) clazzId << 32) | (courseId & 0xffffffffL);
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.gacourse.ga.selection;
+
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.PackedPopulation;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.util.GaRandom;
+
+/**
+ * 功能描述：线性排序选择
+ *
+ * Linear ranking selection: the individual at rank r (0 = fittest) of a
+ * population of size P is picked with weight
+ * (2 - sp) + 2 (sp - 1) (P - 1 - r) / (P - 1), where sp in [1, 2] is the
+ * selection pressure.
+ *
+ * prepare builds the cumulative weight table plus a guide table of P
+ * cut points, so a pick starts its search at the guide entry of its bucket
+ * and costs O(1) expected instead of a binary search over the population.
+ * Both tables are reused between generations.
+ *
+ * @author 邪桑子
+ * @date 2019/10/22 15:40
+ */
+public class RankSelection implements SelectionStrategy {
+
+    /**选择压力**/
+    private final double selectionPressure;
+
+    private double[] cumulative = new double[0];
+    private int[] guide = new int[0];
+    private Object prepared;
+
+    public RankSelection() {
+        this(1.5);
+    }
+
+    /**
+     * @param selectionPressure expected number of picks of the fittest individual, between 1 and 2
+     */
+    public RankSelection(double selectionPressure) {
+        if (selectionPressure < 1 || selectionPressure > 2) {
+            throw new IllegalArgumentException("selectionPressure must be between 1 and 2");
+        }
+        this.selectionPressure = selectionPressure;
+    }
+
+    @Override
+    public void prepare(Population population, GaRandom random) {
+        this.build(population.size());
+        this.prepared = population;
+    }
+
+    @Override
+    public void prepare(PackedPopulation population, GaRandom random) {
+        this.build(population.size());
+        this.prepared = population;
+    }
+
+    /**
+     * Build the tables for a population of the given size; they depend on
+     * nothing else
+     */
+    private void build(int size) {
+        if (this.cumulative.length != size) {
+            this.cumulative = new double[size];
+            this.guide = new int[size];
+        }
+
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            double weight = size == 1 ? 1 : (2 - this.selectionPressure)
+                    + 2 * (this.selectionPressure - 1) * (size - 1 - rank) / (size - 1);
+            sum += weight;
+            this.cumulative[rank] = sum;
+        }
+
+        // guide[j] 为累计权重首次超过 j/size 的排名
+        int rank = 0;
+        for (int j = 0; j < size; j++) {
+            double cut = sum * j / size;
+            while (rank < size - 1 && this.cumulative[rank] <= cut) {
+                rank++;
+            }
+            this.guide[j] = rank;
+        }
+    }
+
+    @Override
+    public Individual select(Population population, GaRandom random) {
+        if (this.prepared != population) {
+            this.prepare(population, random);
+        }
+        return population.getFittest(this.pick(random));
+    }
+
+    @Override
+    public int select(PackedPopulation population, GaRandom random) {
+        if (this.prepared != population) {
+            this.prepare(population, random);
+        }
+        return population.getFittest(this.pick(random));
+    }
+
+    /**
+     * @return rank of the pick
+     */
+    private int pick(GaRandom random) {
+        int size = this.cumulative.length;
+        double target = random.nextDouble() * this.cumulative[size - 1];
+        int rank = this.guide[Math.min((int) (target * size / this.cumulative[size - 1]), size - 1)];
+        while (rank < size - 1 && this.cumulative[rank] <= target) {
+            rank++;
+        }
+        return rank;
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.gacourse.ga.selection;
+
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.PackedPopulation;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.util.GaRandom;
+
+/**
+ * 功能描述：父代选择策略
+ *
+ * Picks parents for crossover. Implementations must not allocate per pick
+ * and must not reorder the population; any per-generation tables are built
+ * in prepare, which GeneticAlgorithm calls once before breeding a generation.
+ *
+ * The PackedPopulation overloads serve the packed breeding loop and pick
+ * individuals by index. The built-in strategies implement them; a custom
+ * strategy that does not falls back to a two-way tournament there.
+ *
+ * @author 邪桑子
+ * @date 2019/10/22 15:40
+ */
+public interface SelectionStrategy {
+
+    /**
+     * Build per-generation state for an evaluated population
+     *
+     * @param population
+     * @param random
+     */
+    default void prepare(Population population, GaRandom random) {
+    }
+
+    /**
+     * Select one parent
+     *
+     * @param population the population passed to the last prepare call
+     * @param random
+     * @return The individual selected as a parent
+     */
+    Individual select(Population population, GaRandom random);
+
+    /**
+     * Build per-generation state for an evaluated packed population
+     *
+     * @param population
+     * @param random
+     */
+    default void prepare(PackedPopulation population, GaRandom random) {
+    }
+
+    /**
+     * Select one parent of a packed population. The default is a two-way
+     * tournament over the packed fitness values.
+     *
+     * @param population the population passed to the last prepare call
+     * @param random
+     * @return index of the individual selected as a parent
+     */
+    default int select(PackedPopulation population, GaRandom random) {
+        return population.tournament(2, random);
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.gacourse.ga.selection;
+
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.PackedPopulation;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.util.GaRandom;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * 功能描述：随机遍历抽样
+ *
+ * Stochastic universal sampling: fitness-proportionate selection that
+ * places P equally spaced pointers over the cumulative fitness with a single
+ * random offset, so every individual is picked within one of its expected
+ * count.
+ *
+ * prepare draws one full generation of picks in a single O(P) pass and
+ * shuffles them; select then just hands them out in turn (wrapping around if
+ * more than P parents are requested), which makes a pick O(1).
+ *
+ * @author 邪桑子
+ * @date 2019/10/22 15:40
+ */
+public class StochasticUniversalSampling implements SelectionStrategy {
+
+    private int[] picks = new int[0];
+    private int cursor = 0;
+    private Object prepared;
+
+    @Override
+    public void prepare(Population population, GaRandom random) {
+        this.sample(population.size(), i -> population.getIndividual(i).getFitness(), random);
+        this.prepared = population;
+    }
+
+    @Override
+    public void prepare(PackedPopulation population, GaRandom random) {
+        this.sample(population.size(), population::getFitness, random);
+        this.prepared = population;
+    }
+
+    /**
+     * Draw one generation of picks from the fitness of individuals [0, size)
+     */
+    private void sample(int size, IntToDoubleFunction fitness, GaRandom random) {
+        if (this.picks.length != size) {
+            this.picks = new int[size];
+        }
+
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += fitness.applyAsDouble(i);
+        }
+        double spacing = total / size;
+        double pointer = random.nextDouble() * spacing;
+        double cumulative = 0;
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            cumulative += fitness.applyAsDouble(i);
+            while (index < size && pointer < cumulative) {
+                this.picks[index++] = i;
+                pointer += spacing;
+            }
+        }
+        // 浮点误差导致指针越过末尾时用最后一个个体补齐
+        while (index < size) {
+            this.picks[index++] = size - 1;
+        }
+
+        // 打乱抽样顺序，避免父代按种群顺序成对出现
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int pick = this.picks[j];
+            this.picks[j] = this.picks[i];
+            this.picks[i] = pick;
+        }
+        this.cursor = 0;
+    }
+
+    @Override
+    public Individual select(Population population, GaRandom random) {
+        if (this.prepared != population) {
+            this.prepare(population, random);
+        }
+        return population.getIndividual(this.next());
+    }
+
+    @Override
+    public int select(PackedPopulation population, GaRandom random) {
+        if (this.prepared != population) {
+            this.prepare(population, random);
+        }
+        return this.next();
+    }
+
+    private int next() {
+        if (this.cursor == this.picks.length) {
+            this.cursor = 0;
+        }
+        return this.picks[this.cursor++];
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.gacourse.ga.selection;
+
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.PackedPopulation;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.util.GaRandom;
+
+/**
+ * 功能描述：锦标赛选择
+ *
+ * Tournament selection works by choosing N random individuals, and then
+ * choosing the best of those. Contestants are drawn by index (with
+ * replacement), so a pick costs O(N) regardless of the population size and
+ * the population is neither shuffled nor copied.
+ *
+ * @author 邪桑子
+ * @date 2019/10/22 15:40
+ */
+public class TournamentSelection implements SelectionStrategy {
+
+    /**锦标赛规模**/
+    private final int tournamentSize;
+
+    public TournamentSelection(int tournamentSize) {
+        if (tournamentSize < 1) {
+            throw new IllegalArgumentException("tournamentSize must be at least 1");
+        }
+        this.tournamentSize = tournamentSize;
+    }
+
+    @Override
+    public Individual select(Population population, GaRandom random) {
+        int size = population.size();
+        Individual best = population.getIndividual(random.nextInt(size));
+        for (int i = 1; i < this.tournamentSize; i++) {
+            Individual contestant = population.getIndividual(random.nextInt(size));
+            if (contestant.getFitness() > best.getFitness()) {
+                best = contestant;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int select(PackedPopulation population, GaRandom random) {
+        return population.tournament(this.tournamentSize, random);
+    }
+
+    public int getTournamentSize() {
+        return this.tournamentSize;
+    }
+}
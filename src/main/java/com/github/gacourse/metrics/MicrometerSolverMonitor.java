@@ -0,0 +1,126 @@
+package com.github.gacourse.metrics;
+
+import com.github.gacourse.ga.SolverMonitor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @功能描述: 基于Micrometer的求解监控
+ *
+ * Publishes the GA measurements as Micrometer meters, which Actuator exposes
+ * at /actuator/prometheus:
+ *
+ * - gacourse.ga.evaluation, .crossover, .mutation, .selection, .local.search: per-generation timers
+ * - gacourse.ga.evaluations, gacourse.ga.cache.hits: counters
+ * - gacourse.ga.best.fitness, .clashes, .diversity: gauges of the latest generation
+ * - gacourse.solve.duration: histogram of whole solves, tagged by outcome
+ *
+ * The gauges hold the most recent generation of whichever solve reported
+ * last; the timers and counters aggregate all solves.
+ *
+ * @author: 邪桑子
+ * @date: 2019/11/02 10:30
+ */
+@Component
+public class MicrometerSolverMonitor implements SolverMonitor {
+
+    private final MeterRegistry registry;
+    private final Timer evaluationTimer;
+    private final Timer crossoverTimer;
+    private final Timer mutationTimer;
+    private final Timer selectionTimer;
+    private final Timer localSearchTimer;
+    private final Counter evaluations;
+    private final Counter cacheHits;
+
+    /** 以位模式保存double，供仪表读取 **/
+    private final AtomicLong bestFitness = new AtomicLong(Double.doubleToLongBits(Double.NaN));
+    private final AtomicLong clashes = new AtomicLong(-1);
+    private final AtomicLong diversity = new AtomicLong(Double.doubleToLongBits(Double.NaN));
+
+    public MicrometerSolverMonitor(MeterRegistry registry) {
+        this.registry = registry;
+        this.evaluationTimer = generationTimer("gacourse.ga.evaluation", "Population evaluation per generation");
+        this.crossoverTimer = generationTimer("gacourse.ga.crossover", "Crossover per generation, excluding selection");
+        this.mutationTimer = generationTimer("gacourse.ga.mutation", "Mutation per generation");
+        this.selectionTimer = generationTimer("gacourse.ga.selection", "Parent selection per generation");
+        this.localSearchTimer = generationTimer("gacourse.ga.local.search", "Local search per generation");
+        this.evaluations = Counter.builder("gacourse.ga.evaluations")
+                .description("Individuals scored")
+                .register(registry);
+        this.cacheHits = Counter.builder("gacourse.ga.cache.hits")
+                .description("Fitness cache hits")
+                .register(registry);
+        Gauge.builder("gacourse.ga.best.fitness", this.bestFitness, bits -> Double.longBitsToDouble(bits.get()))
+                .description("Best fitness of the latest generation")
+                .register(registry);
+        Gauge.builder("gacourse.ga.clashes", this.clashes, AtomicLong::get)
+                .description("Clashes of the best individual of the latest generation")
+                .register(registry);
+        Gauge.builder("gacourse.ga.diversity", this.diversity, bits -> Double.longBitsToDouble(bits.get()))
+                .description("Population diversity of the latest generation")
+                .register(registry);
+    }
+
+    private Timer generationTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(this.registry);
+    }
+
+    @Override
+    public void recordEvaluation(long nanos, int evaluations) {
+        this.evaluationTimer.record(nanos, TimeUnit.NANOSECONDS);
+        this.evaluations.increment(evaluations);
+    }
+
+    @Override
+    public void recordCrossover(long nanos) {
+        this.crossoverTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordMutation(long nanos) {
+        this.mutationTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordSelection(long nanos) {
+        this.selectionTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordLocalSearch(long nanos) {
+        this.localSearchTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordCacheHits(long hits) {
+        this.cacheHits.increment(hits);
+    }
+
+    @Override
+    public void recordGeneration(double bestFitness, int clashes, double diversity) {
+        this.bestFitness.set(Double.doubleToLongBits(bestFitness));
+        this.clashes.set(clashes);
+        this.diversity.set(Double.doubleToLongBits(diversity));
+    }
+
+    @Override
+    public void recordSolve(long nanos, String outcome) {
+        // 按结果区分的计时器由注册表缓存，重复注册返回同一个
+        Timer.builder("gacourse.solve.duration")
+                .description("Wall time of whole solves")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(this.registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.gacourse.service;
+
+import com.github.gacourse.dto.GenerationStats;
+import com.github.gacourse.dto.JobStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @功能描述: 求解进度推送
+ *
+ * Streams the per-generation statistics of solve jobs to Server-Sent Events
+ * subscribers. The solver never talks to clients: it only replaces the job's
+ * latest GenerationStats. Every intervalMillis a tick sends each subscriber
+ * the latest stats if they changed, so generations that finish faster than
+ * that are coalesced into one event.
+ *
+ * Sends run on a small pool of their own and block while a client's
+ * connection is full. A subscriber whose previous event is still being
+ * written is skipped for that tick, so a slow client receives fewer, newer
+ * events. A client whose send has been blocked for sendTimeoutMillis is
+ * dropped and its stream completed with an error. Until then it holds one
+ * sender thread: senderThreads stalled clients can delay everyone else's
+ * events by up to that timeout.
+ *
+ * When the job ends the subscriber gets a final "done" event with the full
+ * job status and the stream is completed.
+ *
+ * @author: 邪桑子
+ * @date: 2019/10/31 10:00
+ */
+@Service
+public class ProgressPublisher {
+
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService sender;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    public ProgressPublisher(@Value("${gacourse.solver.progress-interval-ms:250}") long intervalMillis,
+                             @Value("${gacourse.solver.progress-threads:2}") int senderThreads,
+                             @Value("${gacourse.solver.progress-timeout-minutes:30}") long timeoutMinutes,
+                             @Value("${gacourse.solver.progress-send-timeout-ms:5000}") long sendTimeoutMillis) {
+        if (intervalMillis < 1 || senderThreads < 1 || sendTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Progress interval, sender threads and send timeout must be at least 1");
+        }
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "ga-progress-tick"));
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> daemon(runnable, "ga-progress-send"));
+        this.ticker.scheduleWithFixedDelay(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Open a progress stream for a job
+     *
+     * @param job
+     * @return emitter
+     */
+    public SseEmitter subscribe(SolveJob job) {
+        SseEmitter emitter = new SseEmitter(this.timeoutMillis);
+        Subscription subscription = new Subscription(job, emitter);
+        emitter.onCompletion(() -> this.subscriptions.remove(subscription));
+        emitter.onTimeout(() -> this.subscriptions.remove(subscription));
+        emitter.onError(e -> this.subscriptions.remove(subscription));
+        this.subscriptions.add(subscription);
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.ticker.shutdownNow();
+        this.sender.shutdownNow();
+        for (Subscription subscription : this.subscriptions) {
+            subscription.emitter.complete();
+        }
+        this.subscriptions.clear();
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        for (Subscription subscription : this.subscriptions) {
+            // 上一次发送尚未完成的慢客户端本轮跳过，下一轮发送最新数据
+            if (!subscription.sending.compareAndSet(false, true)) {
+                if (now - subscription.sendStartedNanos > this.sendTimeoutNanos) {
+                    // 发送阻塞超时，断开该客户端
+                    this.subscriptions.remove(subscription);
+                    subscription.emitter.completeWithError(new IOException("Progress send timed out"));
+                }
+                continue;
+            }
+            subscription.sendStartedNanos = now;
+            try {
+                this.sender.execute(() -> this.push(subscription));
+            } catch (RejectedExecutionException e) {
+                subscription.sending.set(false);
+            }
+        }
+    }
+
+    private void push(Subscription subscription) {
+        SolveJob job = subscription.job;
+        try {
+            // 先读取结束状态，保证结束前的最后一代也会被发送
+            boolean done = job.isDone();
+            GenerationStats stats = job.getStats();
+            if (stats != null && stats != subscription.lastSent) {
+                subscription.emitter.send(SseEmitter.event()
+                        .name("generation")
+                        .id(String.valueOf(stats.getGeneration()))
+                        .data(stats));
+                subscription.lastSent = stats;
+            }
+            if (done) {
+                this.subscriptions.remove(subscription);
+                subscription.emitter.send(SseEmitter.event().name("done").data(JobStatus.of(job)));
+                subscription.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            this.subscriptions.remove(subscription);
+            subscription.emitter.complete();
+        } finally {
+            subscription.sending.set(false);
+        }
+    }
+
+    private static final class Subscription {
+        private final SolveJob job;
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long sendStartedNanos;
+        /** 只由持有sending标志的线程访问 **/
+        private GenerationStats lastSent;
+
+        Subscription(SolveJob job, SseEmitter emitter) {
+            this.job = job;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.github.gacourse.service;
+
+import com.github.gacourse.dto.GenerationStats;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.ga.SolverScheduler;
+import com.github.gacourse.ga.Timetable;
+
+/**
+ * @功能描述: 排课求解任务
+ *
+ * The state of one asynchronous solve. The solver thread publishes progress
+ * after every generation; request threads read it through snapshot, which
+ * copies everything under the job's lock, so a reader never sees a best
+ * chromosome from one generation paired with the fitness of another.
+ *
+ * @author: 邪桑子
+ * @date: 2019/10/30 10:40
+ */
+public class SolveJob {
+
+    public enum State {
+        /** 排队中 **/
+        QUEUED,
+        /** 求解中 **/
+        RUNNING,
+        /** 已找到无冲突课表 **/
+        SOLVED,
+        /** 达到最大代数仍有冲突 **/
+        FINISHED,
+        /** 长期没有改进，提前终止 **/
+        STAGNATED,
+        /** CPU预算用完 **/
+        BUDGET_EXHAUSTED,
+        /** 已取消 **/
+        CANCELLED,
+        /** 求解出错 **/
+        FAILED
+    }
+
+    /** 评估速度的测量窗口 **/
+    private static final long RATE_WINDOW_NANOS = 250_000_000L;
+
+    private final String id;
+    private final Timetable timetable;
+    private final int maxGenerations;
+    private final long createdAt = System.currentTimeMillis();
+
+    private State state = State.QUEUED;
+    private int generation;
+    private double bestFitness = -1;
+    private double populationFitness;
+    private int[] bestChromosome;
+    private String error;
+    private long finishedAt;
+
+    private long evaluations;
+    private long windowStartNanos;
+    private long windowStartEvaluations;
+    private double evaluationsPerSecond;
+    private boolean rateMeasured;
+    private volatile GenerationStats stats;
+
+    private volatile boolean cancelRequested;
+    private volatile SolverScheduler.Ticket ticket;
+
+    SolveJob(String id, Timetable timetable, int maxGenerations) {
+        this.id = id;
+        this.timetable = timetable;
+        this.maxGenerations = maxGenerations;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public Timetable getTimetable() {
+        return this.timetable;
+    }
+
+    public int getMaxGenerations() {
+        return this.maxGenerations;
+    }
+
+    public long getCreatedAt() {
+        return this.createdAt;
+    }
+
+    void setTicket(SolverScheduler.Ticket ticket) {
+        this.ticket = ticket;
+    }
+
+    /**
+     * Ask the solver to stop. A queued job never starts; a running job stops
+     * after the current generation and keeps its best result so far.
+     *
+     * @return false if the job had already ended
+     */
+    public boolean cancel() {
+        synchronized (this) {
+            if (this.isDone()) {
+                return false;
+            }
+            this.cancelRequested = true;
+            if (this.state == State.QUEUED) {
+                this.finish(State.CANCELLED, null);
+            }
+        }
+        SolverScheduler.Ticket ticket = this.ticket;
+        if (ticket != null) {
+            // 排队中的任务直接从调度器移除
+            ticket.cancel();
+        }
+        return true;
+    }
+
+    public boolean isCancelRequested() {
+        return this.cancelRequested;
+    }
+
+    public synchronized boolean isDone() {
+        return this.state != State.QUEUED && this.state != State.RUNNING;
+    }
+
+    public synchronized long getFinishedAt() {
+        return this.finishedAt;
+    }
+
+    /**
+     * Mark the job running, unless it was cancelled while queued
+     *
+     * @return true if the solver should go ahead
+     */
+    synchronized boolean start() {
+        if (this.state != State.QUEUED) {
+            return false;
+        }
+        this.state = State.RUNNING;
+        this.windowStartNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Publish the progress of one generation. The best chromosome is only
+     * copied when it improves.
+     *
+     * @param generation
+     * @param population evaluated population
+     * @param evaluations individuals scored so far, see GeneticAlgorithm.getEvaluations
+     */
+    synchronized void update(int generation, Population population, long evaluations) {
+        Individual fittest = population.getFittest(0);
+        this.generation = generation;
+        this.populationFitness = population.getPopulationFitness();
+        if (fittest.getFitness() > this.bestFitness) {
+            this.bestFitness = fittest.getFitness();
+            this.bestChromosome = fittest.getChromosome().clone();
+        }
+
+        // 精英、缓存命中等沿用适应度的个体不计入
+        this.evaluations = evaluations;
+        long now = System.nanoTime();
+        long elapsed = now - this.windowStartNanos;
+        if (elapsed >= RATE_WINDOW_NANOS || !this.rateMeasured) {
+            // 第一个窗口结束前按已过时间估算
+            this.evaluationsPerSecond = (this.evaluations - this.windowStartEvaluations) * 1e9 / Math.max(1, elapsed);
+        }
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            this.rateMeasured = true;
+            this.windowStartNanos = now;
+            this.windowStartEvaluations = this.evaluations;
+        }
+        this.stats = new GenerationStats(generation, this.bestFitness, this.populationFitness, this.evaluations,
+                this.evaluationsPerSecond);
+    }
+
+    /**
+     * Get the statistics of the latest generation. Never blocks on the solver.
+     *
+     * @return stats, or null before the first generation
+     */
+    public GenerationStats getStats() {
+        return this.stats;
+    }
+
+    synchronized void finish(State state, String error) {
+        this.state = state;
+        this.error = error;
+        this.finishedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Copy the current progress
+     *
+     * @return snapshot
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(this.state, this.generation, this.bestFitness, this.populationFitness,
+                this.bestChromosome, this.error);
+    }
+
+    /**
+     * An immutable copy of a job's progress
+     */
+    public static final class Snapshot {
+        private final State state;
+        private final int generation;
+        private final double bestFitness;
+        private final double populationFitness;
+        private final int[] bestChromosome;
+        private final String error;
+
+        Snapshot(State state, int generation, double bestFitness, double populationFitness,
+                 int[] bestChromosome, String error) {
+            this.state = state;
+            this.generation = generation;
+            this.bestFitness = bestFitness;
+            this.populationFitness = populationFitness;
+            // 只在改进时替换，不会被修改，可直接共享
+            this.bestChromosome = bestChromosome;
+            this.error = error;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public int getGeneration() {
+            return generation;
+        }
+
+        public double getBestFitness() {
+            return bestFitness;
+        }
+
+        public double getPopulationFitness() {
+            return populationFitness;
+        }
+
+        /**
+         * @return best chromosome so far, or null before the first generation
+         */
+        public int[] getBestChromosome() {
+            return bestChromosome;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
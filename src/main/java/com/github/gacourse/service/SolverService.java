@@ -0,0 +1,519 @@
+package com.github.gacourse.service;
+
+import com.github.gacourse.dto.SolveRequest;
+import com.github.gacourse.ga.AdaptiveRates;
+import com.github.gacourse.ga.ChangeSet;
+import com.github.gacourse.ga.Checkpoint;
+import com.github.gacourse.ga.CheckpointWriter;
+import com.github.gacourse.ga.GenerationBuffer;
+import com.github.gacourse.ga.GeneticAlgorithm;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.LocalSearch;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.ga.SolverMonitor;
+import com.github.gacourse.ga.SolverScheduler;
+import com.github.gacourse.ga.StagnationDetector;
+import com.github.gacourse.ga.Timetable;
+import com.github.gacourse.ga.WarmStart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @功能描述: 排课求解服务
+ *
+ * Runs solve jobs on a SolverScheduler of its own, so that long GA runs
+ * never occupy the web server's request threads. All jobs share one
+ * work-stealing pool of poolThreads threads, for both their generation
+ * loops and their parallel evaluation. Jobs run one generation at a time in
+ * slices of sliceMillis; at most solverThreads jobs hold a slice at once and
+ * the scheduler's policy (FAIR by the request's priority as CPU share, or
+ * strict PRIORITY) picks who goes next, so many concurrent solves progress
+ * predictably. At most queueCapacity further jobs wait; more submissions are
+ * rejected rather than queued without limit. A job with a CPU budget ends
+ * as BUDGET_EXHAUSTED once it has used it up.
+ *
+ * Requests are validated before they are queued: a null or malformed part
+ * of the problem, or a problem larger than maxPopulationSize,
+ * maxGenerations or maxGenes (populationSize x course sessions x 3), is
+ * rejected with an IllegalArgumentException rather than failing, or
+ * exhausting the heap, inside the solver.
+ *
+ * Finished jobs are kept for retentionMinutes so their results can still be
+ * fetched, then dropped. Every solve reports its generations and duration
+ * to the SolverMonitor.
+ *
+ * When a checkpoint directory is configured, every running job snapshots
+ * its population to <jobId>.gack there every checkpointIntervalMillis, and
+ * a request with resumeFrom continues from another job's snapshot, eg.
+ * after a restart. Snapshots of solved jobs are deleted; the others are
+ * kept until removed by hand.
+ *
+ * A request with warmStartFrom re-solves an edited problem starting from
+ * the best timetable of a retained job: the two problems are diffed and
+ * only the course sessions touched by the changes are placed again.
+ *
+ * @author: 邪桑子
+ * @date: 2019/10/30 11:00
+ */
+@Service
+public class SolverService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SolverService.class);
+    /** ID映射为稠密下标时按最大ID分配数组，须限制ID范围 **/
+    private static final int MAX_ID = 1000000;
+
+    private final SolverScheduler scheduler;
+    private final Map<String, SolveJob> jobs = new ConcurrentHashMap<>();
+    private final int maxEvaluationThreads;
+    private final long retentionMillis;
+    private final SolverMonitor monitor;
+    /** 为空时不保存检查点 **/
+    private final Path checkpointDir;
+    private final long checkpointIntervalMillis;
+    /** 单个请求的规模上限，防止一个请求耗尽内存 **/
+    private final int maxPopulationSize;
+    private final int maxGenerations;
+    private final long maxGenes;
+
+    public SolverService(@Value("${gacourse.solver.threads:2}") int solverThreads,
+                         @Value("${gacourse.solver.queue-capacity:16}") int queueCapacity,
+                         @Value("${gacourse.solver.max-evaluation-threads:1}") int maxEvaluationThreads,
+                         @Value("${gacourse.solver.retention-minutes:60}") long retentionMinutes,
+                         @Value("${gacourse.solver.checkpoint-dir:}") String checkpointDir,
+                         @Value("${gacourse.solver.checkpoint-interval-ms:5000}") long checkpointIntervalMillis,
+                         @Value("${gacourse.solver.pool-threads:0}") int poolThreads,
+                         @Value("${gacourse.solver.slice-ms:100}") long sliceMillis,
+                         @Value("${gacourse.solver.policy:FAIR}") SolverScheduler.Policy policy,
+                         @Value("${gacourse.solver.max-population-size:10000}") int maxPopulationSize,
+                         @Value("${gacourse.solver.max-generations:1000000}") int maxGenerations,
+                         @Value("${gacourse.solver.max-genes:50000000}") long maxGenes,
+                         SolverMonitor monitor) {
+        if (solverThreads < 1 || queueCapacity < 1 || maxEvaluationThreads < 1) {
+            throw new IllegalArgumentException("Solver threads, queue capacity and evaluation threads must be at least 1");
+        }
+        if (maxPopulationSize < 2 || maxGenerations < 1 || maxGenes < 1) {
+            throw new IllegalArgumentException("Solver size limits must be positive");
+        }
+        this.maxPopulationSize = maxPopulationSize;
+        this.maxGenerations = maxGenerations;
+        this.maxGenes = maxGenes;
+        // 0表示使用全部处理器
+        int threads = poolThreads > 0 ? poolThreads : Runtime.getRuntime().availableProcessors();
+        this.scheduler = new SolverScheduler(threads, solverThreads, solverThreads + queueCapacity, sliceMillis, policy);
+        this.maxEvaluationThreads = maxEvaluationThreads;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.monitor = monitor;
+        this.checkpointDir = checkpointDir.isEmpty() ? null : Paths.get(checkpointDir);
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+        if (this.checkpointDir != null) {
+            try {
+                Files.createDirectories(this.checkpointDir);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create checkpoint directory " + checkpointDir, e);
+            }
+        }
+    }
+
+    /**
+     * Validate a request and queue it
+     *
+     * @param request
+     * @return the queued job
+     * @throws IllegalArgumentException if the request is invalid or exceeds the size limits
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public SolveJob submit(SolveRequest request) {
+        this.validate(request);
+        Timetable timetable = request.toTimetable();
+        try {
+            // 提前编译，使非法的问题定义在提交时就被拒绝
+            timetable.compile();
+        } catch (IllegalStateException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        if (timetable.getNumClazzes() == 0) {
+            throw new IllegalArgumentException("No course sessions to schedule");
+        }
+        if (request.getResumeFrom() != null && !Files.isRegularFile(this.checkpointFile(request.getResumeFrom()))) {
+            throw new IllegalArgumentException("No checkpoint for job " + request.getResumeFrom());
+        }
+        WarmStart warmStart = request.getWarmStartFrom() == null ? null
+                : this.warmStart(request.getWarmStartFrom(), timetable);
+
+        this.evictExpired();
+        SolveJob job = new SolveJob(UUID.randomUUID().toString(), timetable, request.getMaxGenerations());
+        this.jobs.put(job.getId(), job);
+        try {
+            int parallelism = evaluationThreads(request);
+            job.setTicket(this.scheduler.submit(new SolveTask(job, request, warmStart), request.getPriority(),
+                    parallelism, TimeUnit.SECONDS.toMillis(request.getCpuBudgetSeconds())));
+        } catch (RejectedExecutionException e) {
+            this.jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * @param jobId
+     * @return job, or null if unknown or expired
+     */
+    public SolveJob getJob(String jobId) {
+        return this.jobs.get(jobId);
+    }
+
+    /**
+     * Cancel a job
+     *
+     * @param jobId
+     * @return job, or null if unknown or expired
+     */
+    public SolveJob cancel(String jobId) {
+        SolveJob job = this.jobs.get(jobId);
+        if (job != null) {
+            job.cancel();
+        }
+        return job;
+    }
+
+    /**
+     * Prepare a warm start from the best timetable of a retained job
+     *
+     * @param jobId
+     * @param timetable the edited problem
+     * @return warm start
+     * @throws IllegalArgumentException if the job is unknown or has no solution yet
+     */
+    private WarmStart warmStart(String jobId, Timetable timetable) {
+        SolveJob previous = this.jobs.get(jobId);
+        int[] chromosome = previous == null ? null : previous.snapshot().getBestChromosome();
+        if (chromosome == null) {
+            throw new IllegalArgumentException("No solution to warm start from for job " + jobId);
+        }
+        ChangeSet changes = ChangeSet.diff(previous.getTimetable().compile(), timetable.compile());
+        return new WarmStart(previous.getTimetable(), new Individual(chromosome), changes);
+    }
+
+    /**
+     * @param jobId validated job id
+     * @return checkpoint file of the job
+     */
+    private Path checkpointFile(String jobId) {
+        if (this.checkpointDir == null) {
+            throw new IllegalArgumentException("Checkpoints are disabled");
+        }
+        try {
+            // 只接受UUID，防止路径穿越
+            UUID.fromString(jobId);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid job id " + jobId);
+        }
+        return this.checkpointDir.resolve(jobId + ".gack");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (SolveJob job : this.jobs.values()) {
+            job.cancel();
+        }
+        this.scheduler.shutdown();
+    }
+
+    private int evaluationThreads(SolveRequest request) {
+        return Math.max(1, Math.min(request.getEvaluationThreads(), this.maxEvaluationThreads));
+    }
+
+    /**
+     * One solve, run by the scheduler one generation per step
+     */
+    private final class SolveTask implements SolverScheduler.Task {
+        private final SolveJob job;
+        private final SolveRequest request;
+        private final WarmStart warmStart;
+        private final Timetable timetable;
+
+        private GeneticAlgorithm ga;
+        private CheckpointWriter checkpoints;
+        private GenerationBuffer generations;
+        private Population population;
+        private int generation;
+        private long start;
+
+        SolveTask(SolveJob job, SolveRequest request, WarmStart warmStart) {
+            this.job = job;
+            this.request = request;
+            this.warmStart = warmStart;
+            this.timetable = job.getTimetable();
+        }
+
+        @Override
+        public boolean step() {
+            try {
+                if (this.ga == null) {
+                    // 第一步：创建遗传算法并初始化种群，取消的排队任务不再启动
+                    return this.job.start() && this.init();
+                }
+                GeneticAlgorithm ga = this.ga;
+                if (ga.isTerminationConditionMet(this.generation, this.job.getMaxGenerations())
+                        || ga.isTerminationConditionMet(this.population) || ga.isStagnated()) {
+                    if (ga.isTerminationConditionMet(this.population)) {
+                        this.end(SolveJob.State.SOLVED, null);
+                    } else {
+                        this.checkpoint();
+                        this.end(ga.isStagnated() ? SolveJob.State.STAGNATED : SolveJob.State.FINISHED, null);
+                    }
+                    return false;
+                }
+                if (this.job.isCancelRequested()) {
+                    this.checkpoint();
+                    this.end(SolveJob.State.CANCELLED, null);
+                    return false;
+                }
+                this.population = ga.nextGeneration(this.generations, this.timetable);
+                this.generation++;
+                this.job.update(this.generation, this.population, ga.getEvaluations());
+                if (this.checkpoints != null) {
+                    this.checkpoints.maybeWrite(this.generation, this.population, ga, this.timetable);
+                }
+                return true;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Solve job {} failed", this.job.getId(), e);
+                this.end(SolveJob.State.FAILED, e.getMessage());
+                return false;
+            }
+        }
+
+        private boolean init() throws IOException {
+            SolveRequest request = this.request;
+            GeneticAlgorithm ga = new GeneticAlgorithm(request.getPopulationSize(), request.getMutationRate(),
+                    request.getCrossoverRate(), request.getElitismCount(), request.getTournamentSize(),
+                    evaluationThreads(request));
+            this.ga = ga;
+            this.start = System.nanoTime();
+            ga.setEvaluationPool(scheduler.getPool());
+            if (request.getSeed() != null) {
+                ga.setSeed(request.getSeed());
+            }
+            if (request.getLocalSearchTopK() > 0) {
+                ga.setLocalSearch(new LocalSearch(request.getLocalSearchTopK(), request.getLocalSearchMovesPerIndividual(),
+                        request.getLocalSearchMovesPerGeneration()));
+            }
+            if (request.isAdaptiveRates()) {
+                ga.setAdaptiveRates(new AdaptiveRates(request.getMinMutationRate(), request.getMaxMutationRate(),
+                        request.getMinCrossoverRate(), request.getMaxCrossoverRate()));
+            }
+            if (request.getStagnationPatience() > 0) {
+                ga.setStagnationDetector(new StagnationDetector(request.getStagnationPatience(),
+                        request.getStagnationAction(), request.getMaxRestarts()));
+            }
+            ga.setMonitor(monitor);
+            if (checkpointDir != null) {
+                this.checkpoints = new CheckpointWriter(checkpointFile(this.job.getId()), checkpointIntervalMillis);
+            }
+
+            if (request.getResumeFrom() != null) {
+                Checkpoint checkpoint = Checkpoint.read(checkpointFile(request.getResumeFrom()));
+                this.generations = checkpoint.restore(ga, this.timetable);
+                this.generation = checkpoint.getGeneration();
+            } else {
+                this.generations = this.warmStart == null ? ga.initGenerations(this.timetable)
+                        : this.warmStart.initGenerations(ga, this.timetable);
+                ga.evalPopulation(this.generations.getCurrent(), this.timetable);
+                this.generation = 1;
+            }
+            this.population = this.generations.getCurrent();
+            this.job.update(this.generation, this.population, ga.getEvaluations());
+            return true;
+        }
+
+        @Override
+        public void stopped(SolverScheduler.StopReason reason, RuntimeException error) {
+            if (reason == SolverScheduler.StopReason.FAILED) {
+                LOGGER.error("Solve job {} failed", this.job.getId(), error);
+                this.end(SolveJob.State.FAILED, error.getMessage());
+                return;
+            }
+            if (this.population != null) {
+                this.checkpoint();
+            }
+            this.end(reason == SolverScheduler.StopReason.BUDGET_EXHAUSTED ? SolveJob.State.BUDGET_EXHAUSTED
+                    : SolveJob.State.CANCELLED, null);
+        }
+
+        private void checkpoint() {
+            SolverService.this.checkpoint(this.checkpoints, this.generation, this.population, this.ga, this.timetable);
+        }
+
+        /**
+         * Finish the job and release the GA
+         */
+        private void end(SolveJob.State state, String error) {
+            this.job.finish(state, error);
+            if (this.ga == null) {
+                return;
+            }
+            this.ga.shutdown();
+            if (this.checkpoints != null) {
+                this.checkpoints.close();
+                cleanUpCheckpoint(this.job, this.checkpoints);
+            }
+            monitor.recordSolve(System.nanoTime() - this.start, state.name());
+        }
+    }
+
+    /**
+     * Write a final snapshot, waiting for any snapshot still being written
+     */
+    private void checkpoint(CheckpointWriter checkpoints, int generation, Population population,
+                            GeneticAlgorithm ga, Timetable timetable) {
+        if (checkpoints == null) {
+            return;
+        }
+        checkpoints.awaitWrite();
+        checkpoints.write(generation, population, ga, timetable);
+    }
+
+    private void cleanUpCheckpoint(SolveJob job, CheckpointWriter checkpoints) {
+        if (checkpoints.getFailure() != null) {
+            LOGGER.warn("Checkpoint of solve job {} failed", job.getId(), checkpoints.getFailure());
+        }
+        if (job.snapshot().getState() == SolveJob.State.SOLVED) {
+            try {
+                Files.deleteIfExists(checkpoints.getFile());
+            } catch (IOException e) {
+                LOGGER.warn("Cannot delete checkpoint of solve job {}", job.getId(), e);
+            }
+        }
+    }
+
+    private void validate(SolveRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Missing request body");
+        }
+        if (request.getPopulationSize() < 2 || request.getPopulationSize() > this.maxPopulationSize) {
+            throw new IllegalArgumentException("populationSize must be in [2, " + this.maxPopulationSize + "]");
+        }
+        if (request.getElitismCount() < 0 || request.getElitismCount() >= request.getPopulationSize()) {
+            throw new IllegalArgumentException("elitismCount must be in [0, populationSize)");
+        }
+        if (request.getTournamentSize() < 1) {
+            throw new IllegalArgumentException("tournamentSize must be at least 1");
+        }
+        if (request.getMaxGenerations() < 1 || request.getMaxGenerations() > this.maxGenerations) {
+            throw new IllegalArgumentException("maxGenerations must be in [1, " + this.maxGenerations + "]");
+        }
+        if (request.getMutationRate() < 0 || request.getMutationRate() > 1
+                || request.getCrossoverRate() < 0 || request.getCrossoverRate() > 1) {
+            throw new IllegalArgumentException("mutationRate and crossoverRate must be in [0, 1]");
+        }
+        if (request.getLocalSearchTopK() < 0 || (request.getLocalSearchTopK() > 0
+                && (request.getLocalSearchMovesPerIndividual() < 1 || request.getLocalSearchMovesPerGeneration() < 1))) {
+            throw new IllegalArgumentException("Local search needs a non-negative topK and positive move budgets");
+        }
+        if (request.isAdaptiveRates() && !(0 <= request.getMinMutationRate()
+                && request.getMinMutationRate() <= request.getMaxMutationRate() && request.getMaxMutationRate() <= 1
+                && 0 <= request.getMinCrossoverRate() && request.getMinCrossoverRate() <= request.getMaxCrossoverRate()
+                && request.getMaxCrossoverRate() <= 1)) {
+            throw new IllegalArgumentException("Adaptive rate bounds must be ordered and within [0, 1]");
+        }
+        if (request.getStagnationAction() == null) {
+            throw new IllegalArgumentException("stagnationAction must be TERMINATE or RESTART");
+        }
+        if (request.getStagnationPatience() < 0 || request.getMaxRestarts() < 0) {
+            throw new IllegalArgumentException("stagnationPatience and maxRestarts must not be negative");
+        }
+        if (request.getPriority() < 1 || request.getCpuBudgetSeconds() < 0) {
+            throw new IllegalArgumentException("priority must be at least 1 and cpuBudgetSeconds not negative");
+        }
+        if (request.getResumeFrom() != null && request.getWarmStartFrom() != null) {
+            throw new IllegalArgumentException("resumeFrom and warmStartFrom cannot be combined");
+        }
+        validateProblem(request);
+
+        long sessions = 0;
+        for (SolveRequest.ClazzDef clazz : request.getClazzes()) {
+            sessions += clazz.getCourseIds().length;
+        }
+        long genes;
+        try {
+            genes = Math.multiplyExact(Math.multiplyExact(sessions, 3L), request.getPopulationSize());
+        } catch (ArithmeticException e) {
+            genes = Long.MAX_VALUE;
+        }
+        if (genes > this.maxGenes) {
+            throw new IllegalArgumentException("populationSize x course sessions x 3 must not exceed " + this.maxGenes);
+        }
+    }
+
+    /**
+     * Reject null and out-of-range parts of the problem definition, which
+     * would otherwise fail with a NullPointerException or allocate by id
+     */
+    private static void validateProblem(SolveRequest request) {
+        if (request.getRooms() == null || request.getTimes() == null || request.getTeachers() == null
+                || request.getCourses() == null || request.getClazzes() == null) {
+            throw new IllegalArgumentException("rooms, times, teachers, courses and clazzes must not be null");
+        }
+        if (request.getRooms().isEmpty() || request.getTimes().isEmpty() || request.getTeachers().isEmpty()) {
+            throw new IllegalArgumentException("rooms, times and teachers must not be empty");
+        }
+        for (SolveRequest.RoomDef room : request.getRooms()) {
+            if (room == null || !isValidId(room.getId())) {
+                throw new IllegalArgumentException("Every room needs an id in [0, " + MAX_ID + "]");
+            }
+        }
+        for (SolveRequest.TimeDef time : request.getTimes()) {
+            if (time == null || !isValidId(time.getId())) {
+                throw new IllegalArgumentException("Every timeslot needs an id in [0, " + MAX_ID + "]");
+            }
+        }
+        for (SolveRequest.TeacherDef teacher : request.getTeachers()) {
+            if (teacher == null || !isValidId(teacher.getId())) {
+                throw new IllegalArgumentException("Every teacher needs an id in [0, " + MAX_ID + "]");
+            }
+        }
+        for (SolveRequest.CourseDef course : request.getCourses()) {
+            if (course == null || course.getTeacherIds() == null) {
+                throw new IllegalArgumentException("Every course needs teacherIds");
+            }
+        }
+        for (SolveRequest.ClazzDef clazz : request.getClazzes()) {
+            if (clazz == null || clazz.getCourseIds() == null) {
+                throw new IllegalArgumentException("Every clazz needs courseIds");
+            }
+        }
+    }
+
+    private static boolean isValidId(int id) {
+        return id >= 0 && id <= MAX_ID;
+    }
+
+    /**
+     * Drop finished jobs older than the retention period
+     */
+    private void evictExpired() {
+        long expiry = System.currentTimeMillis() - this.retentionMillis;
+        Iterator<SolveJob> it = this.jobs.values().iterator();
+        while (it.hasNext()) {
+            SolveJob job = it.next();
+            if (job.isDone() && job.getFinishedAt() < expiry) {
+                it.remove();
+            }
+        }
+    }
+}
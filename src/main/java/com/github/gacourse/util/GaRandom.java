@@ -0,0 +1,177 @@
+package com.github.gacourse.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @功能描述: 遗传算法随机数
+ *
+ * A splittable SplitMix64 generator, the algorithm behind
+ * java.util.SplittableRandom. One seeded root stream is split into
+ * independent child streams, one per worker, so parallel code never
+ * contends on a shared generator and a run is reproducible for a given seed
+ * and number of workers.
+ *
+ * Unlike SplittableRandom the state (seed and gamma) can be read back and
+ * restored, which lets a run be checkpointed and resumed.
+ *
+ * A GaRandom is not thread-safe; give every thread its own stream. Code that
+ * is not handed a stream can use current(), a per-thread stream with an
+ * unpredictable seed.
+ *
+ * @author: 邪桑子
+ * @date: 2019/10/23 10:05
+ */
+public final class GaRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    /** 未指定种子时的种子来源 **/
+    private static final AtomicLong SEEDER = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+    private static final ThreadLocal<GaRandom> CURRENT = ThreadLocal.withInitial(GaRandom::new);
+
+    private long seed;
+    private final long gamma;
+
+    /**
+     * Create a stream with an unpredictable seed
+     */
+    public GaRandom() {
+        this(SEEDER.getAndAdd(2 * GOLDEN_GAMMA), GOLDEN_GAMMA);
+    }
+
+    /**
+     * Create a reproducible stream
+     *
+     * @param seed
+     */
+    public GaRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private GaRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Restore a stream from the state returned by getSeed and getGamma
+     *
+     * @param seed
+     * @param gamma
+     * @return stream
+     */
+    public static GaRandom restore(long seed, long gamma) {
+        if ((gamma & 1L) == 0) {
+            throw new IllegalArgumentException("gamma must be odd");
+        }
+        return new GaRandom(seed, gamma);
+    }
+
+    /**
+     * Get the random stream of the calling thread
+     *
+     * @return stream
+     */
+    public static GaRandom current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Split off a new, statistically independent stream. Advances this stream.
+     *
+     * @return child stream
+     */
+    public GaRandom split() {
+        return new GaRandom(this.nextLong(), mixGamma(this.nextSeed()));
+    }
+
+    /**
+     * Split off one stream per worker, in worker order
+     *
+     * @param count
+     * @return child streams
+     */
+    public GaRandom[] split(int count) {
+        GaRandom[] streams = new GaRandom[count];
+        for (int i = 0; i < count; i++) {
+            streams[i] = this.split();
+        }
+        return streams;
+    }
+
+    public long nextLong() {
+        return mix64(this.nextSeed());
+    }
+
+    public int nextInt() {
+        return mix32(this.nextSeed());
+    }
+
+    /**
+     * Uniform int in [0, bound)
+     *
+     * @param bound
+     * @return value
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int r = this.nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        // 拒绝采样，去除取模偏差
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = this.nextInt() >>> 1) {
+            // retry
+        }
+        return r;
+    }
+
+    /**
+     * Uniform double in [0, 1)
+     *
+     * @return value
+     */
+    public double nextDouble() {
+        return (this.nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    public boolean nextBoolean() {
+        return this.nextInt() < 0;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public long getGamma() {
+        return this.gamma;
+    }
+
+    private long nextSeed() {
+        return this.seed += this.gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
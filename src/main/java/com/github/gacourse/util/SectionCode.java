@@ -0,0 +1,232 @@
+package com.github.gacourse.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @功能描述: 连上节次位图编码
+ *
+ * The consecutive-section patterns (连上) of one day of morning + afternoon
+ * + night sections, as long bitmasks: bit k is section k + 1 of the day. The
+ * day is split into its three half-days and every half-day is tiled with
+ * blocks of 1 to morning sections, the last block of a tiling moved back
+ * to end on the half-day's last section. These are the patterns
+ * GAUtil.initSectionCode prints, in the same order.
+ *
+ * Two blocks overlap exactly when their masks intersect, so an overlap
+ * check is a single AND (see overlaps).
+ *
+ * Instances are immutable and cached per (morning, afternoon, night), so
+ * the masks are computed once and of() can be called on hot paths.
+ *
+ * @author: 邪桑子
+ * @date: 2019/11/11 09:30
+ */
+public final class SectionCode {
+
+    /** 早上 **/
+    public static final int MORNING = 1;
+    /** 下午 **/
+    public static final int AFTERNOON = 2;
+    /** 晚上 **/
+    public static final int NIGHT = 3;
+
+    private static final ConcurrentMap<Long, SectionCode> CACHE = new ConcurrentHashMap<>();
+
+    private final int morning;
+    private final int afternoon;
+    private final int night;
+    private final long[] masks;
+    private final int[] types;
+    /** 按连上节次分组的位图，下标为节次 **/
+    private final long[][] masksByLength;
+
+    private SectionCode(int morning, int afternoon, int night) {
+        this.morning = morning;
+        this.afternoon = afternoon;
+        this.night = night;
+        int total = morning + afternoon + night;
+        List<long[]> blocks = new ArrayList<>();
+        gen(blocks, morning, 0, morning, MORNING);
+        gen(blocks, morning, morning, morning + afternoon, AFTERNOON);
+        gen(blocks, morning, morning + afternoon, total, NIGHT);
+
+        this.masks = new long[blocks.size()];
+        this.types = new int[blocks.size()];
+        int[] counts = new int[morning + 1];
+        for (int i = 0; i < this.masks.length; i++) {
+            this.masks[i] = blocks.get(i)[0];
+            this.types[i] = (int) blocks.get(i)[1];
+            counts[Long.bitCount(this.masks[i])]++;
+        }
+        this.masksByLength = new long[morning + 1][];
+        for (int length = 0; length <= morning; length++) {
+            this.masksByLength[length] = new long[counts[length]];
+            counts[length] = 0;
+        }
+        for (long mask : this.masks) {
+            int length = Long.bitCount(mask);
+            this.masksByLength[length][counts[length]++] = mask;
+        }
+    }
+
+    /**
+     * Tile the sections [start, end) with blocks of 1 to max sections
+     */
+    private static void gen(List<long[]> blocks, int max, int start, int end, int type) {
+        int size = end - start;
+        for (int i = 1; i <= max && i <= size; i++) {
+            //i表示连上节次
+            for (int j = 0; j < size; j += i) {
+                // 最后一块不足i节时，改为该时段的最后i节
+                int from = start + Math.min(j, size - i);
+                blocks.add(new long[]{block(from, i), type});
+            }
+        }
+    }
+
+    /**
+     * Mask of the sections [from, from + length), 0-based
+     */
+    private static long block(int from, int length) {
+        return (length >= 64 ? -1L : (1L << length) - 1) << from;
+    }
+
+    /**
+     * Get the patterns of a day
+     *
+     * @param morning 早上节次
+     * @param afternoon 下午节次
+     * @param night 晚上节次
+     * @return cached patterns
+     * @throws IllegalArgumentException unless morning >= afternoon >= night >= 0 and the day has at most 64 sections
+     */
+    public static SectionCode of(int morning, int afternoon, int night) {
+        if (!(morning >= afternoon && afternoon >= night && night >= 0)) {
+            throw new IllegalArgumentException("Sections must satisfy morning >= afternoon >= night >= 0");
+        }
+        if (morning + afternoon + night > 64) {
+            throw new IllegalArgumentException("A day must have at most 64 sections");
+        }
+        return CACHE.computeIfAbsent(((long) morning << 42) | ((long) afternoon << 21) | night,
+                key -> new SectionCode(morning, afternoon, night));
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @return true if two blocks share a section
+     */
+    public static boolean overlaps(long a, long b) {
+        return (a & b) != 0;
+    }
+
+    /**
+     * @param mask
+     * @return first section of a block, 1-based
+     */
+    public static int firstSection(long mask) {
+        return Long.numberOfTrailingZeros(mask) + 1;
+    }
+
+    public int getMorning() {
+        return this.morning;
+    }
+
+    public int getAfternoon() {
+        return this.afternoon;
+    }
+
+    public int getNight() {
+        return this.night;
+    }
+
+    /**
+     * @return sections per day
+     */
+    public int getTotal() {
+        return this.morning + this.afternoon + this.night;
+    }
+
+    /**
+     * @return longest block, the number of morning sections
+     */
+    public int getMaxLength() {
+        return this.morning;
+    }
+
+    /**
+     * @return number of patterns
+     */
+    public int size() {
+        return this.masks.length;
+    }
+
+    public long getMask(int index) {
+        return this.masks[index];
+    }
+
+    /**
+     * @param index
+     * @return MORNING, AFTERNOON or NIGHT
+     */
+    public int getType(int index) {
+        return this.types[index];
+    }
+
+    /**
+     * @return every pattern, in the order GAUtil.initSectionCode prints them
+     */
+    public long[] getMasks() {
+        return this.masks.clone();
+    }
+
+    /**
+     * Get the blocks of exactly length sections, eg. the start positions of
+     * a course taught in length consecutive sections
+     *
+     * @param length
+     * @return blocks, empty if no half-day is that long
+     */
+    public long[] getMasks(int length) {
+        if (length < 1 || length > this.morning) {
+            return new long[0];
+        }
+        return this.masksByLength[length].clone();
+    }
+
+    /**
+     * Number of blocks of exactly length sections, without copying them
+     *
+     * @param length
+     * @return blocks
+     */
+    public int count(int length) {
+        return length < 1 || length > this.morning ? 0 : this.masksByLength[length].length;
+    }
+
+    /**
+     * @param length
+     * @param index in [0, count(length))
+     * @return block
+     */
+    public long getMask(int length, int index) {
+        return this.masksByLength[length][index];
+    }
+
+    /**
+     * @param mask
+     * @return the sections of a day as a string of 0 and 1, section 1 first
+     */
+    public String toBits(long mask) {
+        char[] bits = new char[this.getTotal()];
+        Arrays.fill(bits, '0');
+        for (long m = mask; m != 0; m &= m - 1) {
+            bits[Long.numberOfTrailingZeros(m)] = '1';
+        }
+        return new String(bits);
+    }
+}
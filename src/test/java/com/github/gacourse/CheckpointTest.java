@@ -0,0 +1,120 @@
+package com.github.gacourse;
+
+import com.github.gacourse.ga.Checkpoint;
+import com.github.gacourse.ga.CheckpointWriter;
+import com.github.gacourse.ga.GenerationBuffer;
+import com.github.gacourse.ga.GeneticAlgorithm;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.ga.Timetable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @功能描述: 检查点写入、读取与恢复测试
+ * @author: 邪桑子
+ * @date: 2019/11/06 15:20
+ */
+public class CheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static GeneticAlgorithm ga() {
+        GeneticAlgorithm ga = new GeneticAlgorithm(30, 0.02, 0.9, 2, 5);
+        ga.setSeed(11);
+        return ga;
+    }
+
+    /**
+     * Run a few generations and write a snapshot of the last one
+     */
+    private Path write(Timetable timetable, GeneticAlgorithm ga, GenerationBuffer generations) throws IOException {
+        Population population = generations.getCurrent();
+        ga.evalPopulation(population, timetable);
+        for (int generation = 1; generation < 5; generation++) {
+            population = ga.nextGeneration(generations, timetable);
+        }
+        Path file = this.folder.newFolder().toPath().resolve("run.ckpt");
+        CheckpointWriter writer = new CheckpointWriter(file, 0);
+        try {
+            writer.write(5, population, ga, timetable);
+            writer.awaitWrite();
+        } finally {
+            writer.close();
+        }
+        if (writer.getFailure() != null) {
+            throw writer.getFailure();
+        }
+        return file;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Timetable timetable = TestProblems.tight(1, 20);
+        GeneticAlgorithm ga = ga();
+        GenerationBuffer generations = ga.initGenerations(timetable);
+        Path file = this.write(timetable, ga, generations);
+
+        Checkpoint checkpoint = Checkpoint.read(file);
+        assertEquals(5, checkpoint.getGeneration());
+        assertEquals(timetable.compile().getFingerprint(), checkpoint.getFingerprint());
+        assertEquals(30, checkpoint.getPopulationSize());
+
+        GeneticAlgorithm resumed = ga();
+        resumed.setMutationRate(0.5);
+        Population saved = generations.getCurrent();
+        Population restored = checkpoint.restore(resumed, timetable).getCurrent();
+        for (int i = 0; i < saved.size(); i++) {
+            Individual expected = saved.getIndividual(i);
+            Individual actual = restored.getIndividual(i);
+            assertArrayEquals(expected.getChromosome(), actual.getChromosome());
+            assertEquals(expected.getFitness(), actual.getFitness(), 0);
+        }
+        assertEquals(saved.getPopulationFitness(), restored.getPopulationFitness(), 1e-9);
+        assertEquals(ga.getMutationRate(), resumed.getMutationRate(), 0);
+        assertEquals(ga.getCrossoverRate(), resumed.getCrossoverRate(), 0);
+        // 随机数流从保存处继续
+        assertEquals(ga.getRandom().nextLong(), resumed.getRandom().nextLong());
+    }
+
+    @Test
+    public void corruptChecksum() throws IOException {
+        Timetable timetable = TestProblems.tight(2, 20);
+        GeneticAlgorithm ga = ga();
+        Path file = this.write(timetable, ga, ga.initGenerations(timetable));
+
+        byte[] bytes = Files.readAllBytes(file);
+        // 改动最后一个基因的一位
+        bytes[bytes.length - 5] ^= 1;
+        Files.write(file, bytes);
+        try {
+            Checkpoint.read(file);
+            fail("Corrupt checkpoint was read");
+        } catch (IOException e) {
+            assertEquals(file + " failed its checksum", e.getMessage());
+        }
+    }
+
+    @Test
+    public void otherProblem() throws IOException {
+        Timetable timetable = TestProblems.tight(3, 20);
+        GeneticAlgorithm ga = ga();
+        Checkpoint checkpoint = Checkpoint.read(this.write(timetable, ga, ga.initGenerations(timetable)));
+        try {
+            checkpoint.restore(ga(), TestProblems.tight(4, 20));
+            fail("Checkpoint restored into a different problem");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Checkpoint was taken for a different problem", e.getMessage());
+        }
+    }
+}
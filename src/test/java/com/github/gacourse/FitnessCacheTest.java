@@ -0,0 +1,99 @@
+package com.github.gacourse;
+
+import com.github.gacourse.ga.CompiledTimetable;
+import com.github.gacourse.ga.FitnessCache;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.Timetable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @功能描述: 适应度缓存测试
+ * @author: 邪桑子
+ * @date: 2019/10/25 14:20
+ */
+public class FitnessCacheTest {
+
+    /**
+     * Chromosomes {a, 62 - 31a} all hash alike, so they share a segment
+     */
+    private static Individual colliding(int a) {
+        return new Individual(new int[]{a, 62 - 31 * a});
+    }
+
+    private static CompiledTimetable compiled() {
+        Timetable timetable = new Timetable();
+        timetable.addRoom(1, "R1", 60);
+        timetable.addTeacher(1, "Teacher 1");
+        timetable.addTimes(1, "T1");
+        timetable.addCourse(1, "C1", "Course 1", new int[]{1});
+        timetable.addClazz(1, "Clazz 1", 30, new int[]{1});
+        return timetable.compile();
+    }
+
+    @Test
+    public void collisionIsConfirmedByGenes() {
+        FitnessCache cache = new FitnessCache(100);
+        cache.put(colliding(0), 0.5);
+        assertEquals(-1, cache.get(colliding(1)), 0);
+        cache.put(colliding(1), 0.25);
+        assertEquals(0.5, cache.get(colliding(0)), 0);
+        assertEquals(0.25, cache.get(colliding(1)), 0);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        // 16个分段，每段2个
+        FitnessCache cache = new FitnessCache(32);
+        cache.put(colliding(0), 0.5);
+        cache.put(colliding(1), 0.25);
+        // 访问后colliding(0)成为最近使用
+        assertEquals(0.5, cache.get(colliding(0)), 0);
+        cache.put(colliding(2), 0.125);
+        assertEquals(0.5, cache.get(colliding(0)), 0);
+        assertEquals(-1, cache.get(colliding(1)), 0);
+        assertEquals(0.125, cache.get(colliding(2)), 0);
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        FitnessCache cache = new FitnessCache(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(new Individual(new int[]{i, i * 7, i % 13}), 1.0 / (i + 1));
+            assertTrue(cache.size() <= 100);
+        }
+        assertTrue(cache.size() > 50);
+        // 最近放入的总在缓存中
+        assertEquals(1.0 / 1000, cache.get(new Individual(new int[]{999, 999 * 7, 999 % 13})), 0);
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        FitnessCache cache = new FitnessCache(10);
+        Individual individual = new Individual(new int[]{1, 2, 3});
+        cache.get(individual);
+        cache.put(individual, 0.5);
+        cache.get(individual);
+        cache.get(individual);
+        // put不计入命中或未命中
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void bindClearsForAnotherProblem() {
+        FitnessCache cache = new FitnessCache(10);
+        Individual individual = new Individual(new int[]{1, 2, 3});
+        CompiledTimetable first = compiled();
+        cache.bind(first);
+        cache.put(individual, 0.5);
+        cache.bind(first);
+        assertEquals(0.5, cache.get(individual), 0);
+
+        cache.bind(compiled());
+        assertEquals(0, cache.size());
+        assertEquals(-1, cache.get(individual), 0);
+    }
+}
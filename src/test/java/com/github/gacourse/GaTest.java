@@ -1,16 +1,336 @@
 package com.github.gacourse;
 
+import com.github.gacourse.ga.CompiledTimetable;
+import com.github.gacourse.ga.FitnessCache;
+import com.github.gacourse.ga.GeneCodec;
+import com.github.gacourse.ga.GenerationBuffer;
+import com.github.gacourse.ga.GeneticAlgorithm;
+import com.github.gacourse.ga.IncrementalEvaluator;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.OccupancyIndex;
+import com.github.gacourse.ga.PackedPopulation;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.ga.Timetable;
 import com.github.gacourse.util.GAUtil;
+import com.github.gacourse.util.GaRandom;
+import com.github.gacourse.util.SectionCode;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 /**
  * @功能描述:
  * @author: 邪桑子
  * @date: 2019/10/16 09:07
  */
 public class GaTest {
+
+    /**
+     * 5 days of 4 morning, 3 afternoon and 2 night sections, with courses
+     * taught in 1 to 4 consecutive sections
+     */
+    private static Timetable sectionProblem(long seed) {
+        GaRandom random = new GaRandom(seed);
+        Timetable timetable = new Timetable();
+        timetable.setSections(4, 3, 2);
+        for (int i = 1; i <= 45; i++) {
+            timetable.addTimes(i, "T" + i);
+        }
+        for (int i = 1; i <= 6; i++) {
+            timetable.addRoom(i, "R" + i, 25 + 5 * i);
+        }
+        for (int i = 1; i <= 8; i++) {
+            timetable.addTeacher(i, "Teacher " + i);
+        }
+        int[] lengths = {1, 2, 3, 4, 2, 3, 2, 1};
+        for (int i = 1; i <= lengths.length; i++) {
+            timetable.addCourse(i, "C" + i, "Course " + i, new int[]{i, 1 + i % 8}, lengths[i - 1]);
+        }
+        for (int i = 1; i <= 12; i++) {
+            int[] courseIds = new int[4];
+            for (int j = 0; j < courseIds.length; j++) {
+                courseIds[j] = 1 + random.nextInt(lengths.length);
+            }
+            timetable.addClazz(i, "Clazz " + i, 20 + random.nextInt(40), courseIds);
+        }
+        return timetable;
+    }
+
+    private static int calcClashes(Timetable timetable, Individual individual) {
+        Timetable copy = new Timetable(timetable);
+        copy.createClazzes(individual);
+        return copy.calcClashes();
+    }
+
     @Test
     public void ga() {
         GAUtil.initSectionCode(4, 3, 2);
     }
+
+    @Test
+    public void sectionCode() {
+        SectionCode code = SectionCode.of(4, 3, 2);
+        Assert.assertSame(code, SectionCode.of(4, 3, 2));
+        Assert.assertEquals(18, code.size());
+        //早上1-2节、3-4节，下午5-6节、6-7节，晚上8-9节
+        Assert.assertArrayEquals(new long[]{0b11, 0b1100, 0b110000, 0b1100000, 0b110000000}, code.getMasks(2));
+        Assert.assertEquals("000011100", code.toBits(code.getMask(3, 2)));
+        Assert.assertTrue(SectionCode.overlaps(code.getMask(2, 2), code.getMask(2, 3)));
+        Assert.assertFalse(SectionCode.overlaps(code.getMask(2, 1), code.getMask(2, 2)));
+    }
+
+    @Test
+    public void incrementalEvaluatorMatchesCalcClashes() {
+        assertEvaluatorMatchesCalcClashes(TestProblems.tight(5, 15));
+    }
+
+    @Test
+    public void multiSectionEvaluatorMatchesCalcClashes() {
+        assertEvaluatorMatchesCalcClashes(sectionProblem(8));
+    }
+
+    private static void assertEvaluatorMatchesCalcClashes(Timetable timetable) {
+        CompiledTimetable compiled = timetable.compile();
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+        GaRandom random = new GaRandom(5);
+        for (int trial = 0; trial < 20; trial++) {
+            Individual individual = new Individual(timetable, random);
+            Assert.assertEquals(calcClashes(timetable, individual), evaluator.evaluate(individual));
+
+            // 连续修改单个基因，增量结果须与重新计算一致
+            for (int move = 0; move < 200; move++) {
+                int offset = random.nextInt(individual.getChromosomeLength());
+                int gene = compiled.randomGene(offset, random);
+                individual.setGene(offset, gene);
+                int clashes = evaluator.setGene(offset, gene);
+                Assert.assertEquals(calcClashes(timetable, individual), clashes);
+            }
+            Assert.assertEquals(evaluator.getClashes(), evaluator.evaluate(individual));
+        }
+    }
+
+    @Test
+    public void startsStayWithinHalfDay() {
+        CompiledTimetable compiled = sectionProblem(9).compile();
+        SectionCode code = compiled.getSections();
+        for (int session = 0; session < compiled.getNumSessions(); session++) {
+            int length = compiled.getSessionLength(session);
+            Assert.assertTrue(compiled.getStartCount(session) > 0);
+            for (int i = 0; i < compiled.getStartCount(session); i++) {
+                int start = compiled.getStartTime(session, i);
+                Assert.assertTrue(compiled.isValidStart(session, start));
+                // 连上的各节须在同一个半天（早上、下午或晚上）内
+                long mask = ((1L << length) - 1) << (start % code.getTotal());
+                Assert.assertTrue(mask == (mask & 0b1111L) || mask == (mask & 0b1110000L)
+                        || mask == (mask & 0b110000000L));
+            }
+            // 每天的开始节次恰好是该节次数的连上位图
+            Assert.assertEquals(code.count(length) * compiled.getNumTimes() / code.getTotal(),
+                    compiled.getStartCount(session));
+        }
+    }
+
+    @Test
+    public void randomTimesLotIsValidStart() {
+        Timetable timetable = sectionProblem(10);
+        CompiledTimetable compiled = timetable.compile();
+        GaRandom random = new GaRandom(10);
+        for (int session = 0; session < compiled.getNumSessions(); session++) {
+            for (int i = 0; i < 50; i++) {
+                int timeId = timetable.getRandomTimesLot(session, random).getTimeId();
+                Assert.assertTrue(compiled.isValidStart(session, compiled.timeIndex(timeId)));
+            }
+        }
+    }
+
+    @Test
+    public void invalidStartsAreRejected() {
+        Timetable timetable = sectionProblem(11);
+        CompiledTimetable compiled = timetable.compile();
+        Individual individual = new Individual(timetable, new GaRandom(11));
+        // 找一门连上的课程及其不能开始的时段
+        int session = 0;
+        while (compiled.getSessionLength(session) == 1) {
+            session++;
+        }
+        int time = 0;
+        while (compiled.isValidStart(session, time)) {
+            time++;
+        }
+        int timeId = compiled.getTimesLot(time).getTimeId();
+
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+        int clashes = evaluator.evaluate(individual);
+        try {
+            evaluator.setGene(session * 3, timeId);
+            Assert.fail("setGene accepted an invalid start");
+        } catch (IllegalArgumentException e) {
+            // 被拒绝的修改不影响已载入的染色体
+            Assert.assertEquals(clashes, evaluator.getClashes());
+        }
+
+        individual.setGene(session * 3, timeId);
+        try {
+            evaluator.evaluate(individual);
+            Assert.fail("load accepted an invalid start");
+        } catch (IllegalArgumentException e) {
+            // 预期
+        }
+        try {
+            new OccupancyIndex(compiled).load(individual);
+            Assert.fail("OccupancyIndex accepted an invalid start");
+        } catch (IllegalArgumentException e) {
+            // 预期
+        }
+        try {
+            calcClashes(timetable, individual);
+            Assert.fail("calcClashes accepted an invalid start");
+        } catch (IllegalArgumentException e) {
+            // 预期
+        }
+    }
+
+    @Test
+    public void parallelEvaluationScoresOffspring() {
+        Timetable timetable = TestProblems.tight(6, 15);
+        GeneticAlgorithm ga = new GeneticAlgorithm(40, 0.05, 1.0, 2, 3, 4);
+        try {
+            Population population = ga.initPopulation(timetable);
+            ga.evalPopulation(population, timetable);
+            Population offspring = ga.mutatePopulation(ga.crossoverPopulation(population, timetable), timetable);
+            // 多线程评估时繁殖不计算适应度，留给evalPopulation并行计算
+            for (int i = 2; i < offspring.size(); i++) {
+                Assert.assertTrue(offspring.getIndividual(i).getFitness() < 0);
+            }
+            ga.evalPopulation(offspring, timetable);
+            for (int i = 0; i < offspring.size(); i++) {
+                Individual individual = offspring.getIndividual(i);
+                Assert.assertEquals(1 / (double) (calcClashes(timetable, individual) + 1), individual.getFitness(), 0);
+            }
+        } finally {
+            ga.shutdown();
+        }
+    }
+
+    @Test
+    public void evaluationsSkipCarriedFitness() {
+        Timetable timetable = TestProblems.tight(10, 15);
+        // 不交叉、不变异：下一代全部沿用适应度
+        GeneticAlgorithm ga = new GeneticAlgorithm(20, 0, 0, 2, 3);
+        GenerationBuffer generations = ga.initGenerations(timetable);
+        ga.evalPopulation(generations.getCurrent(), timetable);
+        Assert.assertEquals(20, ga.getEvaluations());
+        ga.nextGeneration(generations, timetable);
+        Assert.assertEquals(20, ga.getEvaluations());
+
+        // 多线程评估时，精英以外的交叉后代都要评估
+        GeneticAlgorithm parallel = new GeneticAlgorithm(20, 0, 1.0, 2, 3, 4);
+        try {
+            generations = parallel.initGenerations(timetable);
+            parallel.evalPopulation(generations.getCurrent(), timetable);
+            parallel.nextGeneration(generations, timetable);
+            Assert.assertEquals(20 + 18, parallel.getEvaluations());
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    public void cacheHitsAreNotEvaluations() {
+        Timetable timetable = TestProblems.tight(11, 15);
+        for (int threads : new int[]{1, 4}) {
+            GeneticAlgorithm ga = new GeneticAlgorithm(20, 0.02, 0.9, 2, 3, threads);
+            FitnessCache cache = new FitnessCache(100);
+            ga.setFitnessCache(cache);
+            try {
+                Population population = ga.initPopulation(timetable);
+                ga.evalPopulation(population, timetable);
+                Assert.assertEquals(20, ga.getEvaluations());
+
+                // 重置适应度后再次评估，全部命中缓存
+                for (Individual individual : population.getIndividuals()) {
+                    individual.setFitness(-1);
+                }
+                ga.evalPopulation(population, timetable);
+                Assert.assertEquals(20, ga.getEvaluations());
+                Assert.assertEquals(20, cache.getHits());
+            } finally {
+                ga.shutdown();
+            }
+        }
+    }
+
+    private static int[] evolve(Timetable timetable, long seed, int evaluationThreads, boolean cached, int generations) {
+        GeneticAlgorithm ga = new GeneticAlgorithm(50, 0.02, 0.9, 2, 5, evaluationThreads);
+        ga.setSeed(seed);
+        if (cached) {
+            ga.setFitnessCache(new FitnessCache(1000));
+        }
+        try {
+            Population population = ga.initPopulation(timetable);
+            ga.evalPopulation(population, timetable);
+            for (int generation = 1; generation < generations; generation++) {
+                population = ga.mutatePopulation(ga.crossoverPopulation(population, timetable), timetable);
+                ga.evalPopulation(population, timetable);
+            }
+            return population.getFittest(0).getChromosome();
+        } finally {
+            ga.shutdown();
+        }
+    }
+
+    private static void assertReproducible(Timetable timetable, int evaluationThreads, boolean cached) {
+        int[] first = evolve(timetable, 42, evaluationThreads, cached, 50);
+        Assert.assertArrayEquals(first, evolve(timetable, 42, evaluationThreads, cached, 50));
+        Assert.assertFalse(Arrays.equals(first, evolve(timetable, 43, evaluationThreads, cached, 50)));
+    }
+
+    @Test
+    public void sameSeedSameRun() {
+        Timetable timetable = TestProblems.tight(7, 15);
+        assertReproducible(timetable, 1, false);
+        assertReproducible(timetable, 1, true);
+        assertReproducible(timetable, 4, true);
+    }
+
+    @Test
+    public void elitesAreTheFirstElitismCountRanks() {
+        Timetable timetable = TestProblems.tight(11, 15);
+        // 不交叉、每个基因都变异：只有精英保持不变
+        GeneticAlgorithm ga = new GeneticAlgorithm(10, 1, 0, 2, 3);
+        ga.setSeed(11);
+        Population population = ga.initPopulation(timetable);
+        ga.evalPopulation(population, timetable);
+        Individual[] ranked = new Individual[population.size()];
+        int[][] before = new int[population.size()][];
+        for (int rank = 0; rank < population.size(); rank++) {
+            ranked[rank] = population.getFittest(rank);
+            before[rank] = ranked[rank].getChromosome().clone();
+        }
+        ga.mutatePopulationInPlace(population, timetable);
+        for (int rank = 0; rank < population.size(); rank++) {
+            boolean unchanged = Arrays.equals(before[rank], ranked[rank].getChromosome());
+            Assert.assertEquals(rank < 2, unchanged);
+        }
+
+        // 紧凑编码种群使用相同的边界
+        GeneCodec codec = new GeneCodec(timetable.compile());
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(timetable.compile());
+        PackedPopulation current = new PackedPopulation(codec, 10);
+        GaRandom random = new GaRandom(11);
+        for (int i = 0; i < current.size(); i++) {
+            current.randomize(i, random);
+            current.setFitness(i, 1 / (double) (current.evaluate(i, evaluator) + 1));
+        }
+        PackedPopulation next = ga.nextGeneration(current, new PackedPopulation(codec, 10), timetable);
+        for (int rank = 0; rank < current.size(); rank++) {
+            int parent = current.getFittest(rank);
+            boolean unchanged = true;
+            for (int session = 0; session < current.getNumSessions(); session++) {
+                unchanged &= next.getSession(rank, session) == current.getSession(parent, session);
+            }
+            Assert.assertEquals(rank < 2, unchanged);
+        }
+    }
 }
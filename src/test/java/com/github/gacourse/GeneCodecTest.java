@@ -0,0 +1,95 @@
+package com.github.gacourse;
+
+import com.github.gacourse.ga.CompiledTimetable;
+import com.github.gacourse.ga.GeneCodec;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.PackedPopulation;
+import com.github.gacourse.ga.Timetable;
+import com.github.gacourse.ga.TimetableGenerator;
+import com.github.gacourse.util.GaRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @功能描述: 紧凑基因编码测试
+ * @author: 邪桑子
+ * @date: 2019/11/08 14:10
+ */
+public class GeneCodecTest {
+
+    /**
+     * Pack random individuals and unpack them again
+     */
+    private static void assertRoundTrip(Timetable timetable) {
+        GeneCodec codec = new GeneCodec(timetable.compile());
+        PackedPopulation population = new PackedPopulation(codec, 10);
+        GaRandom random = new GaRandom(3);
+        for (int i = 0; i < population.size(); i++) {
+            Individual individual = new Individual(timetable, random);
+            individual.setFitness(0.5);
+            population.setIndividual(i, individual);
+            Individual unpacked = population.toIndividual(i);
+            assertArrayEquals(individual.getChromosome(), unpacked.getChromosome());
+            assertEquals(0.5, unpacked.getFitness(), 0);
+        }
+    }
+
+    @Test
+    public void fields() {
+        TimetableGenerator generator = new TimetableGenerator(1);
+        generator.setNumClazzes(100);
+        CompiledTimetable compiled = generator.generate().compile();
+        GeneCodec codec = new GeneCodec(compiled);
+        GaRandom random = new GaRandom(1);
+        for (int i = 0; i < 1000; i++) {
+            int time = random.nextInt(compiled.getNumTimes());
+            int room = random.nextInt(compiled.getNumRooms());
+            int teacher = random.nextInt(compiled.getNumTeachers());
+            int packed = codec.pack(time, room, teacher);
+            assertEquals(time, codec.time(packed));
+            assertEquals(room, codec.room(packed));
+            assertEquals(teacher, codec.teacher(packed));
+
+            // 替换一个字段，其余字段不变
+            int other = codec.with(packed, 1, compiled.getNumRooms() - 1 - room);
+            assertEquals(time, codec.get(other, 0));
+            assertEquals(compiled.getNumRooms() - 1 - room, codec.get(other, 1));
+            assertEquals(teacher, codec.get(other, 2));
+        }
+    }
+
+    @Test
+    public void individuals() {
+        TimetableGenerator generator = new TimetableGenerator(2);
+        generator.setNumClazzes(50);
+        assertRoundTrip(generator.generate());
+    }
+
+    @Test
+    public void singleRoomAndTeacher() {
+        Timetable timetable = new Timetable();
+        timetable.addRoom(1, "R1", 60);
+        timetable.addTeacher(1, "Teacher 1");
+        for (int i = 1; i <= 5; i++) {
+            timetable.addTimes(i, "T" + i);
+        }
+        timetable.addCourse(1, "C1", "Course 1", new int[]{1});
+        timetable.addCourse(2, "C2", "Course 2", new int[]{1});
+        timetable.addClazz(1, "Clazz 1", 30, new int[]{1, 2});
+        timetable.addClazz(2, "Clazz 2", 30, new int[]{2, 1, 2});
+
+        // 只有一间教室、一位教师时，两个字段都占0位
+        GeneCodec codec = new GeneCodec(timetable.compile());
+        assertEquals(0, codec.mask(1));
+        assertEquals(0, codec.mask(2));
+        int packed = codec.pack(4, 0, 0);
+        assertEquals(4, codec.time(packed));
+        assertEquals(0, codec.room(packed));
+        assertEquals(0, codec.teacher(packed));
+        assertEquals(packed, codec.with(packed, 1, 0));
+        assertEquals(packed, codec.with(packed, 2, 0));
+        assertRoundTrip(timetable);
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.gacourse;
+
+import com.github.gacourse.ga.CompiledTimetable;
+import com.github.gacourse.ga.IncrementalEvaluator;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.LocalSearch;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.ga.Timetable;
+import com.github.gacourse.util.GaRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @功能描述: 局部搜索测试
+ * @author: 邪桑子
+ * @date: 2019/11/04 14:00
+ */
+public class LocalSearchTest {
+
+    private static int clashes(CompiledTimetable compiled, Individual individual) {
+        return new IncrementalEvaluator(compiled).evaluate(individual);
+    }
+
+    @Test
+    public void movesNeverRaiseClashes() {
+        Timetable timetable = TestProblems.tight(1, 30);
+        CompiledTimetable compiled = timetable.compile();
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+        LocalSearch search = new LocalSearch(1, 1000, 1000);
+        GaRandom random = new GaRandom(1);
+        for (int trial = 0; trial < 10; trial++) {
+            Individual individual = new Individual(timetable, random);
+            int clashes = clashes(compiled, individual);
+            // 每次只试一个候选值，冲突数不得上升
+            for (int move = 0; move < 200; move++) {
+                search.improve(individual, evaluator, random, 1);
+                int after = clashes(compiled, individual);
+                assertTrue(after <= clashes);
+                assertEquals(1 / (double) (after + 1), individual.getFitness(), 0);
+                clashes = after;
+            }
+        }
+    }
+
+    @Test
+    public void fitnessMatchesFreshEvaluation() {
+        Timetable timetable = TestProblems.tight(2, 30);
+        CompiledTimetable compiled = timetable.compile();
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+        LocalSearch search = new LocalSearch(1, 500, 500);
+        GaRandom random = new GaRandom(2);
+        for (int trial = 0; trial < 20; trial++) {
+            Individual individual = new Individual(timetable, random);
+            int before = clashes(compiled, individual);
+            int moves = search.improve(individual, evaluator, random, 500);
+            int after = clashes(compiled, individual);
+            assertTrue(moves > 0 && moves <= 500);
+            assertTrue(after < before);
+            assertEquals(1 / (double) (after + 1), individual.getFitness(), 0);
+        }
+    }
+
+    @Test
+    public void budgetsAreHonored() {
+        Timetable timetable = TestProblems.tight(3, 30);
+        CompiledTimetable compiled = timetable.compile();
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+        GaRandom random = new GaRandom(3);
+        Population population = new Population(10);
+        double populationFitness = 0;
+        for (int i = 0; i < population.size(); i++) {
+            Individual individual = new Individual(timetable, random);
+            individual.setFitness(1 / (double) (clashes(compiled, individual) + 1));
+            population.setIndividual(i, individual);
+            populationFitness += individual.getFitness();
+        }
+        population.setPopulationFitness(populationFitness);
+
+        // 每个个体的预算
+        assertEquals(7, new LocalSearch(1, 7, 1000).improve(population, evaluator, random));
+        // 每代的预算，分给前几个个体
+        assertEquals(20, new LocalSearch(5, 7, 20).improve(population, evaluator, random));
+
+        populationFitness = 0;
+        for (int i = 0; i < population.size(); i++) {
+            Individual individual = population.getIndividual(i);
+            assertEquals(1 / (double) (clashes(compiled, individual) + 1), individual.getFitness(), 0);
+            populationFitness += individual.getFitness();
+        }
+        assertEquals(populationFitness, population.getPopulationFitness(), 1e-9);
+    }
+
+    @Test
+    public void roomMovesTakeSmallestFreeRoom() {
+        // 两个班级同时占用最大的教室3，其余教室都空闲
+        Timetable timetable = new Timetable();
+        timetable.addTimes(1, "T1");
+        int[] capacities = {35, 40, 100, 50};
+        for (int i = 1; i <= 4; i++) {
+            timetable.addRoom(i, "R" + i, capacities[i - 1]);
+        }
+        for (int i = 1; i <= 2; i++) {
+            timetable.addTeacher(i, "Teacher " + i);
+            timetable.addCourse(i, "C" + i, "Course " + i, new int[]{i});
+            timetable.addClazz(i, "Clazz " + i, 30, new int[]{i});
+        }
+        CompiledTimetable compiled = timetable.compile();
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+        LocalSearch search = new LocalSearch(1, 1, 1);
+        int roomMoves = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            Individual individual = new Individual(new int[]{1, 3, 1, 1, 3, 2});
+            // 只有一个时段，时段移动不消耗预算；教室移动只尝试最小的空闲教室
+            if (search.improve(individual, evaluator, new GaRandom(seed), 1) == 0) {
+                continue;
+            }
+            roomMoves++;
+            assertEquals(0, clashes(compiled, individual));
+            // 移动的课程换到教室1，另一门留在教室3
+            assertEquals(4, individual.getGene(1) + individual.getGene(4));
+            assertTrue(individual.getGene(1) == 1 || individual.getGene(4) == 1);
+        }
+        assertTrue(roomMoves > 0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.gacourse;
+
+import com.github.gacourse.core.CourseTable;
+import com.github.gacourse.ga.CompiledTimetable;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.OccupancyIndex;
+import com.github.gacourse.ga.Timetable;
+import com.github.gacourse.util.GaRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @功能描述: 占用索引测试
+ * @author: 邪桑子
+ * @date: 2019/11/09 14:30
+ */
+public class OccupancyIndexTest {
+
+    /**
+     * The pairwise count calcClashes used before the index: every
+     * courseTable in a room that is too small, and every courseTable that
+     * shares its room, or its teacher, with another in the same timeslot
+     */
+    private static int pairwiseClashes(Timetable timetable) {
+        CompiledTimetable compiled = timetable.compile();
+        CourseTable[] tables = timetable.getCourseTables();
+        int clashes = 0;
+        for (CourseTable classA : tables) {
+            if (compiled.getRoomCapacity(compiled.roomIndex(classA.getRoomId()))
+                    < compiled.getSessionClazzSize(classA.getTableId())) {
+                clashes++;
+            }
+            for (CourseTable item : tables) {
+                if (classA.getRoomId() == item.getRoomId() && classA.getTimeId() == item.getTimeId()
+                        && classA.getTableId() != item.getTableId()) {
+                    clashes++;
+                    break;
+                }
+            }
+            for (CourseTable item : tables) {
+                if (classA.getTeacherId() == item.getTeacherId() && classA.getTimeId() == item.getTimeId()
+                        && classA.getTableId() != item.getTableId()) {
+                    clashes++;
+                    break;
+                }
+            }
+        }
+        return clashes;
+    }
+
+    @Test
+    public void calcClashesMatchesPairwiseCount() {
+        Timetable timetable = TestProblems.tight(1, 40);
+        GaRandom random = new GaRandom(1);
+        OccupancyIndex index = new OccupancyIndex(timetable.compile());
+        for (int trial = 0; trial < 50; trial++) {
+            Individual individual = new Individual(timetable, random);
+            timetable.createClazzes(individual);
+            int expected = pairwiseClashes(timetable);
+            assertEquals(expected, timetable.calcClashes());
+            assertEquals(expected, index.load(individual));
+        }
+    }
+
+    @Test
+    public void nextFreeRoom() {
+        Timetable timetable = TestProblems.tight(2, 40);
+        CompiledTimetable compiled = timetable.compile();
+        OccupancyIndex index = new OccupancyIndex(compiled);
+        index.load(new Individual(timetable, new GaRandom(2)));
+        int size = compiled.getSessionClazzSize(0);
+        for (int time = 0; time < compiled.getNumTimes(); time++) {
+            // 按容量顺序逐个找出的教室应恰好是所有足够大的空闲教室
+            int rank = index.nextFreeRoom(time, size, 0);
+            for (int r = 0; r < compiled.getNumRooms(); r++) {
+                int room = compiled.roomIndex(compiled.getRoomIdByCapacity(r));
+                boolean free = compiled.getRoomCapacity(room) >= size && !index.isRoomBooked(room, time);
+                if (r == rank) {
+                    assertTrue(free);
+                    rank = index.nextFreeRoom(time, size, r + 1);
+                } else {
+                    assertFalse(free);
+                }
+            }
+            assertEquals(-1, rank);
+        }
+    }
+}
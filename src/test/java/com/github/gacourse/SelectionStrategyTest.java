@@ -0,0 +1,215 @@
+package com.github.gacourse;
+
+import com.github.gacourse.ga.GeneCodec;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.PackedPopulation;
+import com.github.gacourse.ga.Population;
+import com.github.gacourse.ga.Timetable;
+import com.github.gacourse.ga.selection.RankSelection;
+import com.github.gacourse.ga.selection.SelectionStrategy;
+import com.github.gacourse.ga.selection.StochasticUniversalSampling;
+import com.github.gacourse.ga.selection.TournamentSelection;
+import com.github.gacourse.util.GaRandom;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * @功能描述: 父代选择策略测试
+ * @author: 邪桑子
+ * @date: 2019/10/22 16:30
+ */
+public class SelectionStrategyTest {
+
+    private static final int SIZE = 10;
+    private static final int PICKS = 100000;
+
+    /**
+     * A population whose individuals have fitness 0.1 to 1.0, stored out of
+     * fitness order. Every individual carries its own index as its only gene.
+     */
+    private static Population population() {
+        Population population = new Population(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            Individual individual = new Individual(new int[]{i});
+            individual.setFitness(fitness(i));
+            population.setIndividual(i, individual);
+        }
+        return population;
+    }
+
+    private static double fitness(int index) {
+        return (1 + index * 7 % SIZE) / (double) SIZE;
+    }
+
+    /**
+     * The same fitness layout as population(), packed
+     */
+    private static PackedPopulation packedPopulation() {
+        Timetable timetable = new Timetable();
+        timetable.addRoom(1, "R1", 60);
+        timetable.addTeacher(1, "Teacher 1");
+        timetable.addTimes(1, "T1");
+        timetable.addCourse(1, "C1", "Course 1", new int[]{1});
+        timetable.addClazz(1, "Clazz 1", 30, new int[]{1});
+        PackedPopulation population = new PackedPopulation(new GeneCodec(timetable.compile()), SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            population.setFitness(i, fitness(i));
+        }
+        return population;
+    }
+
+    /**
+     * Number of individuals fitter than the one at index
+     */
+    private static int rank(int index) {
+        return SIZE - (1 + index * 7 % SIZE);
+    }
+
+    /**
+     * Share of PICKS picks that went to each index
+     */
+    private static double[] frequencies(SelectionStrategy strategy, Population population) {
+        double[] frequencies = new double[SIZE];
+        GaRandom random = new GaRandom(1);
+        strategy.prepare(population, random);
+        for (int i = 0; i < PICKS; i++) {
+            frequencies[strategy.select(population, random).getGene(0)] += 1.0 / PICKS;
+        }
+        return frequencies;
+    }
+
+    /**
+     * Share of PICKS packed picks that went to each index
+     */
+    private static double[] packedFrequencies(SelectionStrategy strategy, PackedPopulation population) {
+        double[] frequencies = new double[SIZE];
+        GaRandom random = new GaRandom(1);
+        strategy.prepare(population, random);
+        for (int i = 0; i < PICKS; i++) {
+            frequencies[strategy.select(population, random)] += 1.0 / PICKS;
+        }
+        return frequencies;
+    }
+
+    @Test
+    public void tournamentFavoursFitter() {
+        double[] frequencies = frequencies(new TournamentSelection(2), population());
+        for (int i = 0; i < SIZE; i++) {
+            // 两人锦标赛：排名r的个体胜出的概率为((n-r)^2-(n-r-1)^2)/n^2
+            int better = SIZE - rank(i);
+            double expected = (better * better - (better - 1) * (better - 1)) / (double) (SIZE * SIZE);
+            assertEquals(expected, frequencies[i], 0.01);
+        }
+    }
+
+    @Test
+    public void rankFollowsLinearWeights() {
+        double pressure = 1.8;
+        double[] frequencies = frequencies(new RankSelection(pressure), population());
+        for (int i = 0; i < SIZE; i++) {
+            // 权重之和为n
+            double weight = (2 - pressure) + 2 * (pressure - 1) * (SIZE - 1 - rank(i)) / (SIZE - 1);
+            assertEquals(weight / SIZE, frequencies[i], 0.01);
+        }
+    }
+
+    @Test
+    public void stochasticUniversalSamplingStaysWithinExpectedCount() {
+        Population population = population();
+        double total = 0;
+        for (int i = 0; i < SIZE; i++) {
+            total += fitness(i);
+        }
+        StochasticUniversalSampling strategy = new StochasticUniversalSampling();
+        GaRandom random = new GaRandom(2);
+        for (int generation = 0; generation < 100; generation++) {
+            int[] counts = new int[SIZE];
+            strategy.prepare(population, random);
+            for (int i = 0; i < SIZE; i++) {
+                counts[strategy.select(population, random).getGene(0)]++;
+            }
+            // 一代内每个个体被选中的次数与期望次数相差不到1
+            for (int i = 0; i < SIZE; i++) {
+                double expected = SIZE * fitness(i) / total;
+                assertTrue(counts[i] >= Math.floor(expected) && counts[i] <= Math.ceil(expected));
+            }
+        }
+    }
+
+    @Test
+    public void packedPicksMatchIndividualPicks() {
+        SelectionStrategy[] strategies = {new TournamentSelection(2), new RankSelection(1.8),
+                new StochasticUniversalSampling()};
+        for (SelectionStrategy strategy : strategies) {
+            double[] expected = frequencies(strategy, population());
+            double[] actual = packedFrequencies(strategy, packedPopulation());
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(strategy.getClass().getSimpleName(), expected[i], actual[i], 0.01);
+            }
+        }
+    }
+
+    @Test
+    public void customStrategyFallsBackToTournamentOnPackedPopulations() {
+        SelectionStrategy custom = (population, random) -> population.getIndividual(0);
+        double[] expected = frequencies(new TournamentSelection(2), population());
+        double[] actual = packedFrequencies(custom, packedPopulation());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expected[i], actual[i], 0.01);
+        }
+    }
+
+    @Test
+    public void packedRankingIsStable() {
+        PackedPopulation population = packedPopulation();
+        for (int i = 0; i < SIZE; i++) {
+            population.setFitness(i, i % 3 == 0 ? 0.5 : 0.25);
+        }
+        // 适应度相同的个体保持下标顺序
+        int[] expected = {0, 3, 6, 9, 1, 2, 4, 5, 7, 8};
+        for (int rank = 0; rank < SIZE; rank++) {
+            assertEquals(expected[rank], population.getFittest(rank));
+        }
+    }
+
+    @Test
+    public void picksDoNotAllocateOrReorder() {
+        assertPicksInPlace(new TournamentSelection(3));
+        assertPicksInPlace(new RankSelection());
+        assertPicksInPlace(new StochasticUniversalSampling());
+    }
+
+    private static void assertPicksInPlace(SelectionStrategy strategy) {
+        Population population = population();
+        Individual[] order = population.getIndividuals().clone();
+        GaRandom random = new GaRandom(3);
+        strategy.prepare(population, random);
+        // 预热，让排名等惰性数据在计量前建立
+        for (int i = 0; i < PICKS; i++) {
+            strategy.select(population, random);
+        }
+        long allocated = allocatedBytes();
+        for (int i = 0; i < PICKS; i++) {
+            strategy.select(population, random);
+        }
+        allocated = allocatedBytes() - allocated;
+        // 每次选择哪怕只分配一个对象，总量也会远超此上限
+        assertTrue(strategy.getClass().getSimpleName() + " allocated " + allocated + " bytes", allocated < 64 * 1024);
+        for (int i = 0; i < SIZE; i++) {
+            assertSame(order[i], population.getIndividual(i));
+        }
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
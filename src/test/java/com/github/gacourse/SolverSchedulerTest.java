@@ -0,0 +1,217 @@
+package com.github.gacourse;
+
+import com.github.gacourse.ga.SolverScheduler;
+import com.github.gacourse.ga.SolverScheduler.Policy;
+import com.github.gacourse.ga.SolverScheduler.StopReason;
+import com.github.gacourse.ga.SolverScheduler.Ticket;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @功能描述: 多任务求解调度器测试
+ * @author: 邪桑子
+ * @date: 2019/11/10 15:00
+ */
+public class SolverSchedulerTest {
+
+    private static void spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            // 忙等，模拟一代计算
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue("Timed out", latch.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A task that holds its thread until released
+     */
+    private static SolverScheduler.Task blocker(CountDownLatch started, CountDownLatch release) {
+        return () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        };
+    }
+
+    @Test
+    public void fairShareFollowsWeight() throws InterruptedException {
+        SolverScheduler scheduler = new SolverScheduler(1, 1, 10, 5, Policy.FAIR);
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(2);
+        SolverScheduler.Task task = () -> {
+            if (stop.get()) {
+                finished.countDown();
+                return false;
+            }
+            spin(TimeUnit.MILLISECONDS.toNanos(1));
+            return true;
+        };
+        try {
+            Ticket light = scheduler.submit(task, 1, 1, 0);
+            Ticket heavy = scheduler.submit(task, 3, 1, 0);
+            Thread.sleep(800);
+            stop.set(true);
+            await(finished);
+            double ratio = (double) heavy.getCpuNanos() / light.getCpuNanos();
+            assertTrue("Share ratio " + ratio, ratio > 2.2 && ratio < 3.8);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void priorityRunsHighestWeightFirst() throws InterruptedException {
+        SolverScheduler scheduler = new SolverScheduler(1, 1, 10, 5, Policy.PRIORITY);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(3);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        try {
+            scheduler.submit(blocker(started, release), 1, 1, 0);
+            await(started);
+            for (int weight : new int[]{1, 3, 2}) {
+                scheduler.submit(() -> {
+                    order.add(weight);
+                    finished.countDown();
+                    return false;
+                }, weight, 1, 0);
+            }
+            assertEquals(3, scheduler.getWaiting());
+            release.countDown();
+            await(finished);
+            assertEquals(Arrays.asList(3, 2, 1), order);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void budgetStopsTask() throws InterruptedException {
+        SolverScheduler scheduler = new SolverScheduler(2, 2, 10, 5, Policy.FAIR);
+        AtomicInteger steps = new AtomicInteger();
+        AtomicReference<StopReason> stopReason = new AtomicReference<>();
+        CountDownLatch stopped = new CountDownLatch(1);
+        try {
+            Ticket ticket = scheduler.submit(new SolverScheduler.Task() {
+                @Override
+                public boolean step() {
+                    steps.incrementAndGet();
+                    spin(TimeUnit.MILLISECONDS.toNanos(1));
+                    return true;
+                }
+
+                @Override
+                public void stopped(StopReason reason, RuntimeException error) {
+                    stopReason.set(reason);
+                    stopped.countDown();
+                }
+            }, 1, 2, 50);
+            await(stopped);
+            assertEquals(StopReason.BUDGET_EXHAUSTED, stopReason.get());
+            long cpuNanos = ticket.getCpuNanos();
+            assertTrue(cpuNanos >= TimeUnit.MILLISECONDS.toNanos(50));
+            // 按并行度计费：每步至少1ms墙钟时间，计2ms
+            assertTrue(cpuNanos >= steps.get() * TimeUnit.MILLISECONDS.toNanos(2));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void cancelOnlyWithdrawsQueuedTasks() throws InterruptedException {
+        SolverScheduler scheduler = new SolverScheduler(1, 1, 2, 5, Policy.FAIR);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        try {
+            Ticket running = scheduler.submit(blocker(started, release), 1, 1, 0);
+            await(started);
+            Ticket queued = scheduler.submit(() -> {
+                queuedRan.set(true);
+                return false;
+            }, 1, 1, 0);
+
+            assertFalse(running.cancel());
+            assertTrue(queued.cancel());
+            assertFalse(queued.cancel());
+            assertEquals(0, scheduler.getWaiting());
+
+            // 撤回的任务不再占用名额
+            CountDownLatch finished = new CountDownLatch(1);
+            scheduler.submit(() -> {
+                finished.countDown();
+                return false;
+            }, 1, 1, 0);
+            release.countDown();
+            await(finished);
+            assertFalse(queuedRan.get());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void errorInStepFailsTask() throws InterruptedException {
+        SolverScheduler scheduler = new SolverScheduler(1, 1, 10, 1000, Policy.FAIR);
+        OutOfMemoryError oom = new OutOfMemoryError("test");
+        AtomicInteger steps = new AtomicInteger();
+        AtomicReference<StopReason> stopReason = new AtomicReference<>();
+        AtomicReference<RuntimeException> stopError = new AtomicReference<>();
+        CountDownLatch stopped = new CountDownLatch(1);
+        try {
+            scheduler.submit(new SolverScheduler.Task() {
+                @Override
+                public boolean step() {
+                    // 第一步要求继续，同一时间片内的第二步抛出Error
+                    if (steps.incrementAndGet() == 2) {
+                        throw oom;
+                    }
+                    return true;
+                }
+
+                @Override
+                public void stopped(StopReason reason, RuntimeException error) {
+                    stopReason.set(reason);
+                    stopError.set(error);
+                    stopped.countDown();
+                }
+            }, 1, 1, 0);
+            await(stopped);
+            assertEquals(StopReason.FAILED, stopReason.get());
+            assertSame(oom, stopError.get().getCause());
+
+            // 任务不会重新排队，调度器继续运行其他任务
+            CountDownLatch next = new CountDownLatch(1);
+            scheduler.submit(() -> {
+                next.countDown();
+                return false;
+            }, 1, 1, 0);
+            await(next);
+            assertEquals(2, steps.get());
+            assertEquals(0, scheduler.getWaiting());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
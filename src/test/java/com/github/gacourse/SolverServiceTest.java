@@ -0,0 +1,120 @@
+package com.github.gacourse;
+
+import com.github.gacourse.dto.SolveRequest;
+import com.github.gacourse.ga.SolverMonitor;
+import com.github.gacourse.ga.SolverScheduler;
+import com.github.gacourse.service.SolveJob;
+import com.github.gacourse.service.SolverService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * @功能描述: 求解服务请求校验测试
+ * @author: 邪桑子
+ * @date: 2019/11/12 10:20
+ */
+public class SolverServiceTest {
+
+    private SolverService service;
+
+    @Before
+    public void setUp() {
+        // 种群上限1000，代数上限5000，基因数上限100000
+        this.service = new SolverService(1, 4, 1, 60, "", 5000, 2, 20, SolverScheduler.Policy.FAIR,
+                1000, 5000, 100000L, SolverMonitor.NOOP);
+    }
+
+    @After
+    public void tearDown() {
+        this.service.shutdown();
+    }
+
+    private static SolveRequest request() {
+        SolveRequest request = new SolveRequest();
+        SolveRequest.RoomDef room = new SolveRequest.RoomDef();
+        room.setId(1);
+        room.setCapacity(40);
+        request.getRooms().add(room);
+        SolveRequest.TimeDef time = new SolveRequest.TimeDef();
+        time.setId(1);
+        request.getTimes().add(time);
+        SolveRequest.TeacherDef teacher = new SolveRequest.TeacherDef();
+        teacher.setId(1);
+        request.getTeachers().add(teacher);
+        SolveRequest.CourseDef course = new SolveRequest.CourseDef();
+        course.setId(1);
+        course.setTeacherIds(new int[]{1});
+        request.getCourses().add(course);
+        SolveRequest.ClazzDef clazz = new SolveRequest.ClazzDef();
+        clazz.setId(1);
+        clazz.setSize(10);
+        clazz.setCourseIds(new int[]{1});
+        request.getClazzes().add(clazz);
+        return request;
+    }
+
+    private void assertRejected(SolveRequest request) {
+        try {
+            this.service.submit(request);
+            fail("Request was accepted");
+        } catch (IllegalArgumentException e) {
+            // 控制器将其映射为400
+        }
+    }
+
+    @Test
+    public void acceptsValidRequest() {
+        SolveJob job = this.service.submit(request());
+        assertNotNull(job);
+        job.cancel();
+    }
+
+    @Test
+    public void rejectsNullParts() {
+        this.assertRejected(null);
+        SolveRequest request = request();
+        request.setRooms(null);
+        this.assertRejected(request);
+        request = request();
+        request.setTimes(null);
+        this.assertRejected(request);
+        request = request();
+        request.setClazzes(null);
+        this.assertRejected(request);
+        request = request();
+        request.getRooms().add(null);
+        this.assertRejected(request);
+        request = request();
+        request.getCourses().get(0).setTeacherIds(null);
+        this.assertRejected(request);
+        request = request();
+        request.getClazzes().get(0).setCourseIds(null);
+        this.assertRejected(request);
+    }
+
+    @Test
+    public void rejectsOversizedRequests() {
+        SolveRequest request = request();
+        request.getRooms().get(0).setId(Integer.MAX_VALUE);
+        this.assertRejected(request);
+        request = request();
+        request.setPopulationSize(1001);
+        this.assertRejected(request);
+        request = request();
+        request.setMaxGenerations(5001);
+        this.assertRejected(request);
+        // 1000 x 40节课 x 3 = 120000个基因
+        request = request();
+        request.setPopulationSize(1000);
+        int[] courseIds = new int[40];
+        Arrays.fill(courseIds, 1);
+        request.getClazzes().get(0).setCourseIds(courseIds);
+        this.assertRejected(request);
+    }
+}
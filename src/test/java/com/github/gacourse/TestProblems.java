@@ -0,0 +1,32 @@
+package com.github.gacourse;
+
+import com.github.gacourse.ga.Timetable;
+import com.github.gacourse.ga.TimetableGenerator;
+
+/**
+ * @功能描述: 测试共用的排课问题
+ * @author: 邪桑子
+ * @date: 2019/11/14 10:30
+ */
+final class TestProblems {
+
+    private TestProblems() {
+    }
+
+    /**
+     * A tight generated problem over 10 timeslots: rooms are 90% and teachers
+     * 80% booked, so random chromosomes have room, teacher and capacity clashes
+     *
+     * @param seed
+     * @param clazzes number of clazzes
+     * @return timetable
+     */
+    static Timetable tight(long seed, int clazzes) {
+        TimetableGenerator generator = new TimetableGenerator(seed);
+        generator.setNumClazzes(clazzes);
+        generator.setNumTimes(10);
+        generator.setRoomUtilisation(0.9);
+        generator.setTeacherLoad(0.8);
+        return generator.generate();
+    }
+}
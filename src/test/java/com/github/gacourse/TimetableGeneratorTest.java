@@ -0,0 +1,69 @@
+package com.github.gacourse;
+
+import com.github.gacourse.core.Clazz;
+import com.github.gacourse.ga.CompiledTimetable;
+import com.github.gacourse.ga.Timetable;
+import com.github.gacourse.ga.TimetableGenerator;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @功能描述: 排课问题生成器测试
+ * @author: 邪桑子
+ * @date: 2019/11/01 10:30
+ */
+public class TimetableGeneratorTest {
+
+    private static TimetableGenerator generator(long seed) {
+        TimetableGenerator generator = new TimetableGenerator(seed);
+        generator.setNumClazzes(200);
+        generator.setNumTimes(30);
+        generator.setRoomUtilisation(0.5);
+        generator.setTeacherLoad(0.2);
+        return generator;
+    }
+
+    @Test
+    public void sizesFollowTightness() {
+        CompiledTimetable compiled = generator(1).generate().compile();
+        // 1200节课 / (0.5 x 30) = 80间教室，1200 / (0.2 x 30) = 200位教师
+        assertEquals(1200, compiled.getNumSessions());
+        assertEquals(30, compiled.getNumTimes());
+        assertEquals(80, compiled.getNumRooms());
+        assertEquals(200, compiled.getNumTeachers());
+    }
+
+    @Test
+    public void sameSeedSameTimetable() {
+        Timetable a = generator(7).generate();
+        Timetable b = generator(7).generate();
+        Clazz[] clazzesA = a.getClazzesAsArray();
+        Clazz[] clazzesB = b.getClazzesAsArray();
+        assertEquals(clazzesA.length, clazzesB.length);
+        for (int i = 0; i < clazzesA.length; i++) {
+            assertArrayEquals(clazzesA[i].getCourseIds(), clazzesB[i].getCourseIds());
+            assertEquals(clazzesA[i].getNumSize(), clazzesB[i].getNumSize());
+        }
+        CompiledTimetable compiledA = a.compile();
+        CompiledTimetable compiledB = b.compile();
+        for (int i = 0; i < compiledA.getNumRooms(); i++) {
+            assertEquals(compiledA.getRoomCapacity(i), compiledB.getRoomCapacity(i));
+        }
+    }
+
+    @Test
+    public void clazzesTakeDistinctCourses() {
+        for (Clazz clazz : generator(3).generate().getClazzesAsArray()) {
+            int[] courseIds = clazz.getCourseIds().clone();
+            Arrays.sort(courseIds);
+            for (int i = 1; i < courseIds.length; i++) {
+                assertTrue(courseIds[i] != courseIds[i - 1]);
+            }
+        }
+    }
+}
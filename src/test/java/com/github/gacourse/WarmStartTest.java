@@ -0,0 +1,175 @@
+package com.github.gacourse;
+
+import com.github.gacourse.ga.ChangeSet;
+import com.github.gacourse.ga.CompiledTimetable;
+import com.github.gacourse.ga.GeneticAlgorithm;
+import com.github.gacourse.ga.Individual;
+import com.github.gacourse.ga.Timetable;
+import com.github.gacourse.ga.WarmStart;
+import com.github.gacourse.util.GaRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @功能描述: 热启动与变更集测试
+ * @author: 邪桑子
+ * @date: 2019/11/07 15:40
+ */
+public class WarmStartTest {
+
+    /**
+     * 4 rooms, 4 teachers and 4 courses; clazz i takes courses 1 + i % 4
+     * and 1 + (i + 1) % 4
+     */
+    private static Timetable problem(int... clazzIds) {
+        Timetable timetable = new Timetable();
+        for (int i = 1; i <= 10; i++) {
+            timetable.addTimes(i, "T" + i);
+        }
+        for (int i = 1; i <= 4; i++) {
+            timetable.addRoom(i, "R" + i, 20 + 10 * i);
+            timetable.addTeacher(i, "Teacher " + i);
+            timetable.addCourse(i, "C" + i, "Course " + i, new int[]{i, 1 + i % 4});
+        }
+        for (int clazzId : clazzIds) {
+            timetable.addClazz(clazzId, "Clazz " + clazzId, 25, new int[]{1 + clazzId % 4, 1 + (clazzId + 1) % 4});
+        }
+        return timetable;
+    }
+
+    private static GeneticAlgorithm ga() {
+        GeneticAlgorithm ga = new GeneticAlgorithm(10, 0.02, 0.9, 2, 5);
+        ga.setSeed(1);
+        return ga;
+    }
+
+    /**
+     * Find the session of a clazz and course
+     */
+    private static int session(CompiledTimetable compiled, int clazzId, int courseId) {
+        for (int session = 0; session < compiled.getNumSessions(); session++) {
+            if (compiled.getSessionClazzId(session) == clazzId && compiled.getSessionCourseId(session) == courseId) {
+                return session;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void diffFlagsEdits() {
+        CompiledTimetable previous = problem(1, 2, 3, 4, 5, 6).compile();
+        assertTrue(ChangeSet.diff(previous, problem(1, 2, 3, 4, 5, 6).compile()).isEmpty());
+
+        // 删除班级6，改教室2容量、班级3人数、课程2教师，新增教师5
+        Timetable timetable = problem(1, 2, 3, 4, 5);
+        timetable.addRoom(2, "R2", 45);
+        timetable.addClazz(3, "Clazz 3", 35, new int[]{4, 1});
+        timetable.addCourse(2, "C2", "Course 2", new int[]{3, 4});
+        timetable.addTeacher(5, "Teacher 5");
+        ChangeSet changes = ChangeSet.diff(previous, timetable.compile());
+
+        assertTrue(changes.isAffected(0, 0, 2, 0));
+        assertFalse(changes.isAffected(0, 0, 1, 0));
+        assertTrue(changes.isAffected(0, 0, 0, 5));
+        assertFalse(changes.isAffected(0, 0, 0, 1));
+        assertTrue(changes.isAffected(3, 0, 0, 0));
+        assertTrue(changes.isAffected(6, 0, 0, 0));
+        assertFalse(changes.isAffected(1, 0, 0, 0));
+        assertTrue(changes.isAffected(0, 2, 0, 0));
+        assertFalse(changes.isAffected(0, 1, 0, 0));
+    }
+
+    @Test
+    public void carriesOverShiftedLayout() {
+        Timetable previous = problem(1, 2, 3, 4, 5, 6);
+        Individual solution = new Individual(previous, new GaRandom(2));
+        // 删除班级2、新增班级7后，其余课程的基因位置发生移动
+        Timetable timetable = problem(1, 3, 4, 5, 6, 7);
+        WarmStart warmStart = new WarmStart(previous, solution, new ChangeSet());
+        Individual first = warmStart.initGenerations(ga(), timetable).getCurrent().getIndividual(0);
+
+        CompiledTimetable before = previous.compile();
+        CompiledTimetable after = timetable.compile();
+        int added = 0;
+        for (int session = 0; session < after.getNumSessions(); session++) {
+            int old = session(before, after.getSessionClazzId(session), after.getSessionCourseId(session));
+            if (old < 0) {
+                added++;
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                assertEquals(solution.getGene(old * 3 + k), first.getGene(session * 3 + k));
+            }
+        }
+        assertEquals(2, added);
+        assertEquals(added * 3, warmStart.getRedrawnGenes());
+    }
+
+    @Test
+    public void redrawsOnlyAffectedGenes() {
+        Timetable timetable = problem(1, 2, 3, 4, 5, 6, 7, 8);
+        Individual solution = new Individual(timetable, new GaRandom(3));
+        int roomId = solution.getGene(1);
+        ChangeSet changes = new ChangeSet().changeRoom(roomId).changeClazz(5);
+        WarmStart warmStart = new WarmStart(timetable, solution, changes);
+        Individual first = warmStart.initGenerations(ga(), timetable).getCurrent().getIndividual(0);
+
+        CompiledTimetable compiled = timetable.compile();
+        int affected = 0;
+        for (int session = 0; session < compiled.getNumSessions(); session++) {
+            int offset = session * 3;
+            if (changes.isAffected(compiled.getSessionClazzId(session), compiled.getSessionCourseId(session),
+                    solution.getGene(offset + 1), solution.getGene(offset + 2))) {
+                affected++;
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                assertEquals(solution.getGene(offset + k), first.getGene(offset + k));
+            }
+        }
+        assertTrue(affected >= 3);
+        assertEquals(affected * 3, warmStart.getRedrawnGenes());
+    }
+
+    @Test
+    public void keepsRepeatedCoursePlacements() {
+        Timetable previous = problem(1, 2, 3);
+        previous.addClazz(9, "Clazz 9", 25, new int[]{2, 3, 2});
+        Timetable timetable = problem(2, 3);
+        timetable.addClazz(9, "Clazz 9", 25, new int[]{2, 3, 2});
+
+        // 班级9两次上课程2，分别放在时段1和时段2
+        Individual solution = new Individual(previous, new GaRandom(4));
+        int[] before = sessions(previous.compile(), 9, 2);
+        solution.setGene(before[0] * 3, 1);
+        solution.setGene(before[1] * 3, 2);
+        WarmStart warmStart = new WarmStart(previous, solution, new ChangeSet());
+        Individual first = warmStart.initGenerations(ga(), timetable).getCurrent().getIndividual(0);
+
+        int[] after = sessions(timetable.compile(), 9, 2);
+        for (int n = 0; n < 2; n++) {
+            for (int k = 0; k < 3; k++) {
+                assertEquals(solution.getGene(before[n] * 3 + k), first.getGene(after[n] * 3 + k));
+            }
+        }
+        assertEquals(0, warmStart.getRedrawnGenes());
+    }
+
+    /**
+     * Find both sessions of a course a clazz takes twice, in chromosome order
+     */
+    private static int[] sessions(CompiledTimetable compiled, int clazzId, int courseId) {
+        int[] sessions = new int[2];
+        int count = 0;
+        for (int session = 0; session < compiled.getNumSessions(); session++) {
+            if (compiled.getSessionClazzId(session) == clazzId && compiled.getSessionCourseId(session) == courseId) {
+                sessions[count++] = session;
+            }
+        }
+        assertEquals(2, count);
+        return sessions;
+    }
+}